@@ -0,0 +1,96 @@
+package me.saharnooby.qoi.benchmark;
+
+import lombok.NonNull;
+import me.saharnooby.qoi.QOIImage;
+import me.saharnooby.qoi.QOIUtilAWT;
+import me.saharnooby.qoi.plugin.QOIImageWriter;
+import me.saharnooby.qoi.util.SyntheticImages;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Conversion of each {@link BufferedImage} layout handled by {@link QOIUtilAWT#createFromBufferedImage} and the writer:
+ * interleaved bytes used directly, per-type converters, and the per-pixel {@code ColorModel} path for everything else.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+	public enum Layout {
+
+		// Data buffer is used directly
+		BYTE_RGB(image -> SyntheticImages.copyInterleaved(image, false)),
+		BYTE_RGBA(image -> SyntheticImages.copyInterleaved(image, true)),
+		// Converted by per-type code
+		INT_ARGB(BufferedImage.TYPE_INT_ARGB),
+		INT_RGB(BufferedImage.TYPE_INT_RGB),
+		INT_BGR(BufferedImage.TYPE_INT_BGR),
+		BYTE_BGR(BufferedImage.TYPE_3BYTE_BGR),
+		BYTE_ABGR(BufferedImage.TYPE_4BYTE_ABGR),
+		BYTE_GRAY(BufferedImage.TYPE_BYTE_GRAY),
+		// Converted pixel by pixel using the ColorModel
+		INT_ARGB_PRE(BufferedImage.TYPE_INT_ARGB_PRE),
+		BYTE_ABGR_PRE(BufferedImage.TYPE_4BYTE_ABGR_PRE);
+
+		private final Function<BufferedImage, BufferedImage> factory;
+
+		Layout(int type) {
+			this(image -> SyntheticImages.copy(image, type));
+		}
+
+		Layout(@NonNull Function<BufferedImage, BufferedImage> factory) {
+			this.factory = factory;
+		}
+
+	}
+
+	@Param
+	public Layout layout;
+
+	@Param({"SCREENSHOT"})
+	public SyntheticImages.Kind kind;
+
+	@Param({"1920"})
+	public int width;
+
+	@Param({"1080"})
+	public int height;
+
+	private BufferedImage image;
+
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setUp() {
+		ImageIO.setUseCache(false);
+
+		this.image = this.layout.factory.apply(SyntheticImages.create(this.kind, this.width, this.height));
+
+		this.buffer = ByteBuffer.allocate((int) QOIImageWriter.getMaxEncodedSize(this.width, this.height, 4));
+	}
+
+	@Benchmark
+	public QOIImage createFromBufferedImage() {
+		return QOIUtilAWT.createFromBufferedImage(this.image);
+	}
+
+	@Benchmark
+	public int writeImage() throws IOException {
+		this.buffer.clear();
+
+		QOIUtilAWT.writeImage(this.image, this.buffer);
+
+		return this.buffer.position();
+	}
+
+}
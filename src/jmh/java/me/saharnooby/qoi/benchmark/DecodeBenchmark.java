@@ -0,0 +1,116 @@
+package me.saharnooby.qoi.benchmark;
+
+import me.saharnooby.qoi.QOIImage;
+import me.saharnooby.qoi.QOIUtil;
+import me.saharnooby.qoi.QOIUtilAWT;
+import me.saharnooby.qoi.util.SyntheticImages;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of generated images into pixel arrays and {@link BufferedImage}s, including {@link ImageReadParam} paths of the reader.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+	@Param({"PHOTO", "SCREENSHOT", "GRADIENT", "SPRITES"})
+	public SyntheticImages.Kind kind;
+
+	@Param({"1920"})
+	public int width;
+
+	@Param({"1080"})
+	public int height;
+
+	private byte[] encoded;
+
+	private ImageReader reader;
+
+	private ImageReadParam regionParam;
+	private ImageReadParam packedParam;
+	private ImageReadParam bandsParam;
+
+	@Setup
+	public void setUp() throws IOException {
+		ImageIO.setUseCache(false);
+
+		BufferedImage image = SyntheticImages.create(this.kind, this.width, this.height);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(image), out);
+
+		this.encoded = out.toByteArray();
+
+		this.reader = ImageIO.getImageReadersByFormatName("QOI").next();
+
+		boolean hasAlpha = image.getColorModel().hasAlpha();
+
+		this.regionParam = new ImageReadParam();
+		this.regionParam.setSourceRegion(new Rectangle(this.width / 4, this.height / 4, this.width / 2, this.height / 2));
+		this.regionParam.setSourceSubsampling(2, 2, 0, 0);
+
+		this.packedParam = new ImageReadParam();
+		this.packedParam.setDestinationType(ImageTypeSpecifier.createFromBufferedImageType(hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB));
+
+		this.bandsParam = new ImageReadParam();
+		this.bandsParam.setSourceBands(hasAlpha ? new int[] {2, 1, 0, 3} : new int[] {2, 1, 0});
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.reader.dispose();
+	}
+
+	@Benchmark
+	public QOIImage decodePixelData() throws IOException {
+		return QOIUtil.readImage(new ByteArrayInputStream(this.encoded));
+	}
+
+	@Benchmark
+	public BufferedImage decodeByteArray() throws IOException {
+		return QOIUtilAWT.readImage(this.encoded);
+	}
+
+	@Benchmark
+	public BufferedImage decodeInputStream() throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(this.encoded));
+	}
+
+	@Benchmark
+	public BufferedImage decodeRegion() throws IOException {
+		return read(this.regionParam);
+	}
+
+	@Benchmark
+	public BufferedImage decodePackedInt() throws IOException {
+		return read(this.packedParam);
+	}
+
+	@Benchmark
+	public BufferedImage decodeSourceBands() throws IOException {
+		return read(this.bandsParam);
+	}
+
+	private BufferedImage read(ImageReadParam param) throws IOException {
+		this.reader.setInput(this.encoded);
+
+		return this.reader.read(0, param);
+	}
+
+}
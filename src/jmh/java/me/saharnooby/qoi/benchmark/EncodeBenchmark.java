@@ -0,0 +1,101 @@
+package me.saharnooby.qoi.benchmark;
+
+import me.saharnooby.qoi.QOIImage;
+import me.saharnooby.qoi.QOIUtil;
+import me.saharnooby.qoi.QOIUtilAWT;
+import me.saharnooby.qoi.plugin.QOIImageWriteParam;
+import me.saharnooby.qoi.plugin.QOIImageWriter;
+import me.saharnooby.qoi.util.SyntheticImages;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of generated images from pixel arrays and directly from {@link BufferedImage}s.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeBenchmark {
+
+	@Param({"PHOTO", "SCREENSHOT", "GRADIENT", "SPRITES"})
+	public SyntheticImages.Kind kind;
+
+	@Param({"1920"})
+	public int width;
+
+	@Param({"1080"})
+	public int height;
+
+	private BufferedImage image;
+	private QOIImage pixelData;
+
+	private ByteArrayOutputStream out;
+	private ByteBuffer buffer;
+
+	private ImageWriter writer;
+	private QOIImageWriteParam stripesParam;
+
+	@Setup
+	public void setUp() {
+		ImageIO.setUseCache(false);
+
+		this.image = SyntheticImages.create(this.kind, this.width, this.height);
+		this.pixelData = QOIUtilAWT.createFromBufferedImage(this.image);
+
+		int maxSize = (int) QOIImageWriter.getMaxEncodedSize(this.width, this.height, 4);
+
+		this.out = new ByteArrayOutputStream(maxSize);
+		// Stripe table and stripe headers take a few more bytes
+		this.buffer = ByteBuffer.allocate(maxSize + 4096);
+
+		this.writer = ImageIO.getImageWritersByFormatName("QOI").next();
+
+		this.stripesParam = (QOIImageWriteParam) this.writer.getDefaultWriteParam();
+		this.stripesParam.setStripeCount(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.writer.dispose();
+	}
+
+	@Benchmark
+	public int encodePixelData() throws IOException {
+		this.out.reset();
+
+		QOIUtil.writeImage(this.pixelData, this.out);
+
+		return this.out.size();
+	}
+
+	@Benchmark
+	public int encodeBufferedImage() throws IOException {
+		this.buffer.clear();
+
+		QOIUtilAWT.writeImage(this.image, this.buffer);
+
+		return this.buffer.position();
+	}
+
+	@Benchmark
+	public int encodeStripes() throws IOException {
+		this.buffer.clear();
+
+		this.writer.setOutput(this.buffer);
+		this.writer.write(null, new IIOImage(this.image, null, null), this.stripesParam);
+
+		return this.buffer.position();
+	}
+
+}
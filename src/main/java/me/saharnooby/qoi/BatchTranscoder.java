@@ -0,0 +1,218 @@
+package me.saharnooby.qoi;
+
+import lombok.NonNull;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs {@link QOITranscodeJob}s on an executor. Each file is read, converted and written by a single task,
+ * so reading of some files overlaps with encoding of others. Tasks are submitted only while the decoded size
+ * of images in flight fits into the memory budget.
+ */
+final class BatchTranscoder {
+
+	// Decoded images are assumed to take 4 bytes per pixel
+	private static final int BYTES_PER_PIXEL = 4;
+
+	static List<QOITranscodeResult> transcode(@NonNull List<QOITranscodeJob> jobs,
+	                                          @NonNull Executor executor,
+	                                          long memoryBudget,
+	                                          Consumer<QOITranscodeResult> listener) throws InterruptedException {
+		if (memoryBudget < 1) {
+			throw new IllegalArgumentException("Memory budget must be positive");
+		}
+
+		QOITranscodeResult[] results = new QOITranscodeResult[jobs.size()];
+
+		MemoryBudget budget = new MemoryBudget(memoryBudget);
+
+		CountDownLatch latch = new CountDownLatch(jobs.size());
+
+		// First error of a task or exception of the listener, rethrown once all submitted tasks finished
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		for (int i = 0; i < jobs.size(); i++) {
+			if (failure.get() != null) {
+				// Jobs that were not submitted count as finished
+				for (int j = i; j < jobs.size(); j++) {
+					latch.countDown();
+				}
+
+				break;
+			}
+
+			QOITranscodeJob job = jobs.get(i);
+
+			int index = i;
+
+			int[] size;
+
+			try {
+				// Only the header is read here, pixels are decoded by the task
+				size = readSize(job.getSource());
+			} catch (IOException | RuntimeException e) {
+				complete(results, index, new QOITranscodeResult(job, 0, 0, 0, 0, 0, e), listener, latch, failure);
+
+				continue;
+			}
+
+			long bytes = (long) size[0] * size[1] * BYTES_PER_PIXEL;
+
+			budget.acquire(bytes);
+
+			try {
+				executor.execute(() -> {
+					QOITranscodeResult result;
+
+					try {
+						result = transcode(job, size[0], size[1]);
+					} catch (Error e) {
+						failure.compareAndSet(null, e);
+
+						latch.countDown();
+
+						return;
+					} finally {
+						budget.release(bytes);
+					}
+
+					complete(results, index, result, listener, latch, failure);
+				});
+			} catch (RejectedExecutionException e) {
+				budget.release(bytes);
+
+				complete(results, index, new QOITranscodeResult(job, size[0], size[1], 0, 0, 0, e), listener, latch, failure);
+			}
+		}
+
+		latch.await();
+
+		Throwable e = failure.get();
+
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+
+		return new ArrayList<>(Arrays.asList(results));
+	}
+
+	private static QOITranscodeResult transcode(@NonNull QOITranscodeJob job, int width, int height) {
+		long readNanos = 0;
+		long writeNanos = 0;
+
+		try {
+			long start = System.nanoTime();
+
+			BufferedImage image = ImageIO.read(job.getSource());
+
+			if (image == null) {
+				throw new IIOException("No reader found for " + job.getSource());
+			}
+
+			readNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+
+			if (!ImageIO.write(image, job.getFormatName(), job.getTarget())) {
+				throw new IIOException("No " + job.getFormatName() + " writer found for image type " + image.getType());
+			}
+
+			writeNanos = System.nanoTime() - start;
+
+			return new QOITranscodeResult(job, width, height, readNanos, writeNanos, job.getTarget().length(), null);
+		} catch (IOException | RuntimeException e) {
+			// Failure of a single file does not stop the batch
+			return new QOITranscodeResult(job, width, height, readNanos, writeNanos, 0, e);
+		}
+	}
+
+	private static void complete(QOITranscodeResult @NonNull [] results,
+	                             int index,
+	                             @NonNull QOITranscodeResult result,
+	                             Consumer<QOITranscodeResult> listener,
+	                             @NonNull CountDownLatch latch,
+	                             @NonNull AtomicReference<Throwable> failure) {
+		results[index] = result;
+
+		try {
+			if (listener != null) {
+				listener.accept(result);
+			}
+		} catch (RuntimeException | Error e) {
+			failure.compareAndSet(null, e);
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	private static int[] readSize(@NonNull File file) throws IOException {
+		try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+			if (in == null) {
+				throw new IIOException("Can't open " + file);
+			}
+
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+
+			if (!readers.hasNext()) {
+				throw new IIOException("No reader found for " + file);
+			}
+
+			ImageReader reader = readers.next();
+
+			try {
+				reader.setInput(in, true, true);
+
+				return new int[] {reader.getWidth(0), reader.getHeight(0)};
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	private static final class MemoryBudget {
+
+		private final long limit;
+
+		private long used;
+
+		MemoryBudget(long limit) {
+			this.limit = limit;
+		}
+
+		// An image larger than the whole budget is admitted when nothing else is in flight
+		synchronized void acquire(long bytes) throws InterruptedException {
+			while (this.used > 0 && this.used + bytes > this.limit) {
+				wait();
+			}
+
+			this.used += bytes;
+		}
+
+		synchronized void release(long bytes) {
+			this.used -= bytes;
+
+			notifyAll();
+		}
+
+	}
+
+}
@@ -0,0 +1,33 @@
+package me.saharnooby.qoi;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.File;
+
+/**
+ * A file to be converted by {@link QOIUtilAWT#transcode}.
+ */
+@Getter
+public final class QOITranscodeJob {
+
+	/**
+	 * Source file in any format supported by {@code ImageIO}.
+	 */
+	@NonNull
+	private final File source;
+	@NonNull
+	private final File target;
+	/**
+	 * {@code ImageIO} format name of the target file, for example {@code "qoi"} or {@code "png"}.
+	 */
+	@NonNull
+	private final String formatName;
+
+	public QOITranscodeJob(@NonNull File source, @NonNull File target, @NonNull String formatName) {
+		this.source = source;
+		this.target = target;
+		this.formatName = formatName;
+	}
+
+}
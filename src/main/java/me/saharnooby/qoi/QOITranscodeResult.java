@@ -0,0 +1,59 @@
+package me.saharnooby.qoi;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Outcome of a {@link QOITranscodeJob}.
+ */
+@Getter
+public final class QOITranscodeResult {
+
+	@NonNull
+	private final QOITranscodeJob job;
+	/**
+	 * Image dimensions, or 0 if the source could not be read.
+	 */
+	private final int width;
+	private final int height;
+	/**
+	 * Time spent reading and decoding the source file.
+	 */
+	private final long readNanos;
+	/**
+	 * Time spent converting, encoding and writing the target file.
+	 */
+	private final long writeNanos;
+	/**
+	 * Size of the target file in bytes.
+	 */
+	private final long targetSize;
+	/**
+	 * Cause of the failure, or {@code null} if the job succeeded.
+	 */
+	private final Throwable error;
+
+	QOITranscodeResult(@NonNull QOITranscodeJob job, int width, int height, long readNanos, long writeNanos, long targetSize, Throwable error) {
+		this.job = job;
+		this.width = width;
+		this.height = height;
+		this.readNanos = readNanos;
+		this.writeNanos = writeNanos;
+		this.targetSize = targetSize;
+		this.error = error;
+	}
+
+	public boolean isSuccessful() {
+		return this.error == null;
+	}
+
+	/**
+	 * @return Megapixels transcoded per second, counting both reading and writing time.
+	 */
+	public double getMegapixelsPerSecond() {
+		long nanos = this.readNanos + this.writeNanos;
+
+		return nanos == 0 ? 0 : (double) this.width * this.height / nanos * 1000;
+	}
+
+}
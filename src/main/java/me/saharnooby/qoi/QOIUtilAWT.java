@@ -2,10 +2,25 @@ package me.saharnooby.qoi;
 
 import lombok.NonNull;
 import me.saharnooby.qoi.plugin.QOIImageReader;
+import me.saharnooby.qoi.plugin.QOIImageReaderSPI;
 import me.saharnooby.qoi.plugin.QOIImageWriter;
+import me.saharnooby.qoi.plugin.QOIImageWriterSPI;
 
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Contains public API methods of the library.
@@ -39,4 +54,127 @@ public final class QOIUtilAWT {
 		return QOIImageReader.convertToBufferedImage(image);
 	}
 
+	/**
+	 * Reads a QOI image from a file. The file is memory-mapped, so its contents are not copied into the heap before decoding.
+	 * @param file Source file.
+	 * @return Decoded image.
+	 */
+	public static BufferedImage readImage(@NonNull File file) throws IOException {
+		return read(file);
+	}
+
+	/**
+	 * Reads a QOI image from a file. The file is memory-mapped, so its contents are not copied into the heap before decoding.
+	 * @param path Source file.
+	 * @return Decoded image.
+	 */
+	public static BufferedImage readImage(@NonNull Path path) throws IOException {
+		return read(path);
+	}
+
+	/**
+	 * Reads a QOI image from remaining bytes of a buffer. Position of the buffer is not changed.
+	 * @param buffer Source buffer, may be direct or memory-mapped.
+	 * @return Decoded image.
+	 */
+	public static BufferedImage readImage(@NonNull ByteBuffer buffer) throws IOException {
+		return read(buffer);
+	}
+
+	/**
+	 * Reads a QOI image from a byte array. The array is decoded in place, without being wrapped into an {@code ImageInputStream}.
+	 * @param data Source data.
+	 * @return Decoded image.
+	 */
+	public static BufferedImage readImage(byte @NonNull [] data) throws IOException {
+		return read(data);
+	}
+
+	/**
+	 * Reads a QOI image from a stream. The stream is decoded directly, without caching its contents
+	 * like {@code ImageIO.read(InputStream)} does. The stream may be read past the end of the image, and is not closed.
+	 * @param in Source stream.
+	 * @return Decoded image.
+	 */
+	public static BufferedImage readImage(@NonNull InputStream in) throws IOException {
+		return read(in);
+	}
+
+	/**
+	 * Encodes an image as QOI into a channel, without an intermediate {@code ImageOutputStream}.
+	 * @param image Source image.
+	 * @param channel Target channel, must be in blocking mode. It is not closed.
+	 */
+	public static void writeImage(@NonNull RenderedImage image, @NonNull WritableByteChannel channel) throws IOException {
+		write(image, channel);
+	}
+
+	/**
+	 * Encodes an image as QOI into a buffer, which may be direct, starting at its position.
+	 * The position is advanced by the encoded size; if the buffer is too small, an {@code IIOException} is thrown
+	 * and the position is left unchanged.
+	 * @param image Source image.
+	 * @param buffer Target buffer, see {@link QOIImageWriter#getMaxEncodedSize} for the size that is always enough.
+	 */
+	public static void writeImage(@NonNull RenderedImage image, @NonNull ByteBuffer buffer) throws IOException {
+		write(image, buffer);
+	}
+
+	/**
+	 * Converts image files, for example PNG to QOI or back, running jobs in parallel on the executor.
+	 * Jobs are submitted only while decoded images in flight, estimated at 4 bytes per pixel, fit into the memory budget;
+	 * a single image larger than the budget is converted alone.
+	 * @param jobs Files to convert.
+	 * @param executor Executor to run jobs on, for example a virtual thread executor on newer JDKs.
+	 * @param memoryBudget Maximum total decoded size of images in flight, in bytes.
+	 * @param listener Called with the result of each job as soon as it completes, possibly concurrently from executor threads; may be {@code null}.
+	 * @return Results in the order of jobs. Jobs failed with an {@link IOException} or a {@link RuntimeException}
+	 * do not stop the batch and are reported in their results.
+	 * @throws Error If a job failed with an {@link Error}, such as {@link OutOfMemoryError}.
+	 * No more jobs are submitted then, and the first error is rethrown once submitted jobs finished.
+	 * An exception thrown by the listener is rethrown the same way.
+	 */
+	public static List<QOITranscodeResult> transcode(@NonNull List<QOITranscodeJob> jobs,
+	                                                 @NonNull Executor executor,
+	                                                 long memoryBudget,
+	                                                 Consumer<QOITranscodeResult> listener) throws InterruptedException {
+		return BatchTranscoder.transcode(jobs, executor, memoryBudget, listener);
+	}
+
+	/**
+	 * Same as {@link #transcode(List, Executor, long, Consumer)}, but runs jobs on a temporary pool with a thread per processor.
+	 */
+	public static List<QOITranscodeResult> transcode(@NonNull List<QOITranscodeJob> jobs, long memoryBudget) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		try {
+			return BatchTranscoder.transcode(jobs, executor, memoryBudget, null);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void write(@NonNull RenderedImage image, @NonNull Object output) throws IOException {
+		ImageWriter writer = new QOIImageWriterSPI().createWriterInstance(null);
+
+		try {
+			writer.setOutput(output);
+			writer.write(image);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static BufferedImage read(@NonNull Object input) throws IOException {
+		ImageReader reader = new QOIImageReaderSPI().createReaderInstance(null);
+
+		try {
+			reader.setInput(input, true, true);
+
+			return reader.read(0);
+		} finally {
+			reader.dispose();
+		}
+	}
+
 }
@@ -0,0 +1,158 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} over bytes of a {@link ByteBuffer}, which may be memory-mapped.
+ * Stream position 0 is the position of the buffer at construction time; the buffer itself is not modified.
+ * Nothing is cached, since all bytes are always available.
+ */
+final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+	private final ByteBuffer buffer;
+
+	ByteBufferImageInputStream(@NonNull ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+	}
+
+	@Override
+	public int read() throws IOException {
+		checkClosed();
+
+		this.bitOffset = 0;
+
+		if (this.streamPos >= this.buffer.limit()) {
+			return -1;
+		}
+
+		return this.buffer.get((int) this.streamPos++) & 0xFF;
+	}
+
+	@Override
+	public int read(byte @NonNull [] b, int off, int len) throws IOException {
+		checkClosed();
+
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		this.bitOffset = 0;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		long remaining = this.buffer.limit() - this.streamPos;
+
+		if (remaining <= 0) {
+			return -1;
+		}
+
+		int count = (int) Math.min(len, remaining);
+
+		ByteBuffer view = this.buffer.duplicate();
+		view.position((int) this.streamPos);
+		view.get(b, off, count);
+
+		this.streamPos += count;
+
+		return count;
+	}
+
+	@Override
+	public long length() {
+		return this.buffer.limit();
+	}
+
+	@Override
+	public boolean isCached() {
+		return true;
+	}
+
+	@Override
+	public boolean isCachedMemory() {
+		return true;
+	}
+
+	/**
+	 * Returns a stream that reads bytes straight from the buffer, starting at the current position.
+	 * Closing the returned stream moves this stream to the first byte not consumed from it.
+	 */
+	InputStream openInputStream() {
+		return new View(this.streamPos, true);
+	}
+
+	/**
+	 * Returns a stream that reads bytes straight from the buffer, starting at the specified position.
+	 * The returned stream does not affect this stream, so several of them can be read by different threads.
+	 */
+	InputStream openInputStream(long position) {
+		return new View(position, false);
+	}
+
+	private final class View extends InputStream {
+
+		private final ByteBuffer view = ByteBufferImageInputStream.this.buffer.duplicate();
+
+		private final boolean seekOnClose;
+
+		View(long position, boolean seekOnClose) {
+			this.view.position((int) Math.min(position, this.view.limit()));
+			this.seekOnClose = seekOnClose;
+		}
+
+		@Override
+		public int read() {
+			return this.view.hasRemaining() ? this.view.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte @NonNull [] b, int off, int len) {
+			if (off < 0 || len < 0 || len > b.length - off) {
+				throw new IndexOutOfBoundsException();
+			}
+
+			if (len == 0) {
+				return 0;
+			}
+
+			if (!this.view.hasRemaining()) {
+				return -1;
+			}
+
+			int count = Math.min(len, this.view.remaining());
+
+			this.view.get(b, off, count);
+
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.max(0, Math.min(n, this.view.remaining()));
+
+			this.view.position(this.view.position() + count);
+
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return this.view.remaining();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.seekOnClose) {
+				seek(this.view.position());
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,154 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import javax.imageio.IIOException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Wraps a {@link WritableByteChannel} into an {@link OutputStream}. Small writes are coalesced into blocks.
+ * {@link #flush()} must be called after the last write; the channel is not closed.
+ */
+final class ChannelOutputStream extends OutputStream implements MeteredStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final WritableByteChannel channel;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+
+	private long ioNanos;
+	private long byteCount;
+
+	ChannelOutputStream(@NonNull WritableByteChannel channel) throws IIOException {
+		// Non-blocking channels may accept no bytes at all, which can't be waited for here
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new IIOException("Non-blocking channels are not supported");
+		}
+
+		this.channel = channel;
+	}
+
+	/**
+	 * Returns a channel that puts bytes into the buffer, advancing its position.
+	 * If the buffer does not have enough space, its position is restored to the one it had when the channel
+	 * was created and an {@link IIOException} is thrown.
+	 */
+	static WritableByteChannel toChannel(@NonNull ByteBuffer target) {
+		int start = target.position();
+
+		return new WritableByteChannel() {
+
+			@Override
+			public int write(@NonNull ByteBuffer src) throws IOException {
+				int length = src.remaining();
+
+				if (length > target.remaining()) {
+					int remaining = target.remaining();
+
+					// Blocks put so far are discarded, so the caller does not get a partial image
+					target.position(start);
+
+					throw new IIOException("Not enough space in the output buffer, " + remaining + " bytes remaining");
+				}
+
+				target.put(src);
+
+				return length;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+				// The buffer is owned by the caller
+			}
+
+		};
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (this.count == BUFFER_SIZE) {
+			flushBuffer();
+		}
+
+		this.buffer[this.count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte @NonNull [] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (len >= BUFFER_SIZE) {
+			// Large blocks are written directly
+			flushBuffer();
+
+			writeFully(ByteBuffer.wrap(b, off, len));
+
+			return;
+		}
+
+		if (len > BUFFER_SIZE - this.count) {
+			flushBuffer();
+		}
+
+		System.arraycopy(b, off, this.buffer, this.count, len);
+
+		this.count += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+	}
+
+	/**
+	 * Writes buffered bytes to the channel, which is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		flushBuffer();
+	}
+
+	private void flushBuffer() throws IOException {
+		if (this.count > 0) {
+			writeFully(ByteBuffer.wrap(this.buffer, 0, this.count));
+
+			this.count = 0;
+		}
+	}
+
+	private void writeFully(@NonNull ByteBuffer src) throws IOException {
+		long start = System.nanoTime();
+
+		this.byteCount += src.remaining();
+
+		while (src.hasRemaining()) {
+			this.channel.write(src);
+		}
+
+		this.ioNanos += System.nanoTime() - start;
+	}
+
+	@Override
+	public long getIONanos() {
+		return this.ioNanos;
+	}
+
+	@Override
+	public long getByteCount() {
+		return this.byteCount;
+	}
+
+}
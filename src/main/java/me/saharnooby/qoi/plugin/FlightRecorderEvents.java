@@ -0,0 +1,71 @@
+package me.saharnooby.qoi.plugin;
+
+/**
+ * Flight Recorder events of the plugin. Java 8 has no public Flight Recorder API, so these are no-op stubs;
+ * on Java 11 and newer the classes compiled from {@code src/main/java11} are loaded from the multi-release JAR instead.
+ * Both versions must declare the same fields, since callers assign them directly.
+ */
+final class FlightRecorderEvents {
+
+	private FlightRecorderEvents() {
+
+	}
+
+	// Mirrors methods of jdk.jfr.Event used by the plugin; fields are never set, since shouldCommit returns false
+	static class Stub {
+
+		void begin() {
+
+		}
+
+		boolean shouldCommit() {
+			return false;
+		}
+
+		void commit() {
+
+		}
+
+	}
+
+	static final class Read extends Stub {
+
+		int imageIndex;
+		int width;
+		int height;
+		int channels;
+		long pixels;
+		long bytes;
+		String path;
+
+	}
+
+	static final class Write extends Stub {
+
+		int imageIndex;
+		int width;
+		int height;
+		int channels;
+		long bytes;
+		int stripes;
+		String path;
+
+	}
+
+	static final class Conversion extends Stub {
+
+		int width;
+		int height;
+		int channels;
+		String path;
+
+	}
+
+	static final class Probe extends Stub {
+
+		String inputType;
+		boolean matched;
+
+	}
+
+}
@@ -25,7 +25,8 @@ final class ImageParamUtil {
 	}
 
 	static boolean isDefault(@NonNull ImageWriteParam param) {
-		return param.getClass() == ImageWriteParam.class &&
+		// Options of QOIImageWriteParam don't affect how pixels are read
+		return (param.getClass() == ImageWriteParam.class || param.getClass() == QOIImageWriteParam.class) &&
 				param.getSourceRegion() == null &&
 				param.getSourceXSubsampling() == 1 &&
 				param.getSourceYSubsampling() == 1 &&
@@ -0,0 +1,166 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} over an {@link InputStream}. Unlike
+ * {@link javax.imageio.stream.MemoryCacheImageInputStream}, only bytes that may still be seeked back to are kept:
+ * pixel data read through {@link #openInputStream()} is discarded as soon as it is consumed.
+ * The underlying stream may be read ahead of the current position and is not closed.
+ */
+final class InputStreamImageInputStream extends ImageInputStreamImpl {
+
+	private static final int BLOCK_SIZE = 8192;
+
+	private final InputStream input;
+
+	// Holds bytes [bufferStart, bufferStart + bufferLength) of the stream
+	private byte[] buffer = new byte[BLOCK_SIZE];
+	private long bufferStart;
+	private int bufferLength;
+
+	private boolean endOfStream;
+
+	// While a stream returned by openInputStream is open, consumed bytes are discarded right away
+	private boolean streaming;
+
+	InputStreamImageInputStream(@NonNull InputStream input) {
+		this.input = input;
+	}
+
+	@Override
+	public int read() throws IOException {
+		checkClosed();
+
+		this.bitOffset = 0;
+
+		if (!fill(this.streamPos)) {
+			return -1;
+		}
+
+		return this.buffer[(int) (this.streamPos++ - this.bufferStart)] & 0xFF;
+	}
+
+	@Override
+	public int read(byte @NonNull [] b, int off, int len) throws IOException {
+		checkClosed();
+
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		this.bitOffset = 0;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if (!fill(this.streamPos)) {
+			return -1;
+		}
+
+		int offset = (int) (this.streamPos - this.bufferStart);
+		int count = Math.min(len, this.bufferLength - offset);
+
+		System.arraycopy(this.buffer, offset, b, off, count);
+
+		this.streamPos += count;
+
+		return count;
+	}
+
+	/**
+	 * Returns a stream that reads from the current position. Consumed bytes are flushed,
+	 * so it is not possible to seek back before the current position after that.
+	 * Closing the returned stream leaves this stream positioned at the first byte not consumed from it.
+	 */
+	InputStream openInputStream() throws IOException {
+		flushBefore(this.streamPos);
+
+		this.streaming = true;
+
+		return new InputStream() {
+
+			@Override
+			public int read() throws IOException {
+				return InputStreamImageInputStream.this.read();
+			}
+
+			@Override
+			public int read(byte @NonNull [] b, int off, int len) throws IOException {
+				return InputStreamImageInputStream.this.read(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				streaming = false;
+
+				flushBefore(streamPos);
+			}
+
+		};
+	}
+
+	@Override
+	public boolean isCached() {
+		return true;
+	}
+
+	@Override
+	public boolean isCachedMemory() {
+		return true;
+	}
+
+	/**
+	 * Does not close the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		super.close();
+
+		this.buffer = null;
+	}
+
+	// Reads more bytes until the byte at the specified position is buffered; returns false at end of stream
+	private boolean fill(long position) throws IOException {
+		while (position >= this.bufferStart + this.bufferLength) {
+			if (this.endOfStream) {
+				return false;
+			}
+
+			// Bytes before the current position are kept only if they were not flushed
+			long keepFrom = Math.min(Math.max(this.streaming ? this.streamPos : this.flushedPos, this.bufferStart), this.bufferStart + this.bufferLength);
+
+			int discard = (int) (keepFrom - this.bufferStart);
+
+			if (discard > 0) {
+				System.arraycopy(this.buffer, discard, this.buffer, 0, this.bufferLength - discard);
+
+				this.bufferStart += discard;
+				this.bufferLength -= discard;
+			}
+
+			if (this.bufferLength == this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+			}
+
+			int count = this.input.read(this.buffer, this.bufferLength, this.buffer.length - this.bufferLength);
+
+			if (count < 0) {
+				this.endOfStream = true;
+
+				return false;
+			}
+
+			this.bufferLength += count;
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,173 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import javax.imageio.IIOException;
+import javax.imageio.stream.ImageInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Handles input types accepted by {@link QOIImageReader} in addition to {@link ImageInputStream}.
+ */
+final class InputUtil {
+
+	/**
+	 * Returns an {@link ImageInputStream} that reads the input. Files are memory-mapped, so
+	 * their contents are read from the OS page cache without being copied into the heap.
+	 * Byte arrays are not copied either.
+	 */
+	static ImageInputStream open(@NonNull Object input) throws IOException {
+		if (input instanceof ImageInputStream) {
+			return (ImageInputStream) input;
+		}
+
+		if (input instanceof ByteBuffer) {
+			return new ByteBufferImageInputStream((ByteBuffer) input);
+		}
+
+		if (input instanceof byte[]) {
+			return new ByteBufferImageInputStream(ByteBuffer.wrap((byte[]) input));
+		}
+
+		if (input instanceof InputStream) {
+			return new InputStreamImageInputStream((InputStream) input);
+		}
+
+		if (input instanceof File) {
+			return new ByteBufferImageInputStream(map(((File) input).toPath()));
+		}
+
+		if (input instanceof Path) {
+			return new ByteBufferImageInputStream(map((Path) input));
+		}
+
+		throw new IllegalArgumentException("Unsupported input type " + input.getClass().getName());
+	}
+
+	/**
+	 * Returns a stream over the remaining bytes of the input. Bytes of a buffer are read in place,
+	 * raw input streams are read without caching, other streams are read in blocks.
+	 * Closing the returned stream positions the input right after the last byte consumed from it.
+	 */
+	static InputStream openStream(@NonNull ImageInputStream input) throws IOException {
+		if (input instanceof ByteBufferImageInputStream) {
+			return ((ByteBufferImageInputStream) input).openInputStream();
+		}
+
+		if (input instanceof InputStreamImageInputStream) {
+			return ((InputStreamImageInputStream) input).openInputStream();
+		}
+
+		return new WrappedImageInputStream(input);
+	}
+
+	/**
+	 * Returns first bytes of the input without changing its position, or {@code null}
+	 * if the input type is not supported or the input is too short.
+	 * {@link InputStream}s are checked only if they support marks.
+	 */
+	static byte[] peek(@NonNull Object input, int length) throws IOException {
+		byte[] b = new byte[length];
+
+		if (input instanceof ImageInputStream) {
+			ImageInputStream in = (ImageInputStream) input;
+
+			in.mark();
+
+			try {
+				in.readFully(b);
+
+				return b;
+			} catch (EOFException e) {
+				return null;
+			} finally {
+				in.reset();
+			}
+		}
+
+		if (input instanceof byte[]) {
+			byte[] bytes = (byte[]) input;
+
+			return bytes.length < length ? null : Arrays.copyOf(bytes, length);
+		}
+
+		if (input instanceof InputStream) {
+			InputStream in = (InputStream) input;
+
+			if (!in.markSupported()) {
+				return null;
+			}
+
+			in.mark(length);
+
+			try {
+				return readFully(in, b) ? b : null;
+			} finally {
+				in.reset();
+			}
+		}
+
+		if (input instanceof ByteBuffer) {
+			ByteBuffer buffer = (ByteBuffer) input;
+
+			if (buffer.remaining() < length) {
+				return null;
+			}
+
+			for (int i = 0; i < length; i++) {
+				b[i] = buffer.get(buffer.position() + i);
+			}
+
+			return b;
+		}
+
+		Path path = input instanceof File ? ((File) input).toPath() : input instanceof Path ? (Path) input : null;
+
+		if (path == null || !Files.isRegularFile(path)) {
+			return null;
+		}
+
+		try (InputStream in = Files.newInputStream(path)) {
+			return readFully(in, b) ? b : null;
+		}
+	}
+
+	private static boolean readFully(@NonNull InputStream in, byte @NonNull [] b) throws IOException {
+		int count = 0;
+
+		while (count < b.length) {
+			int read = in.read(b, count, b.length - count);
+
+			if (read < 0) {
+				return false;
+			}
+
+			count += read;
+		}
+
+		return true;
+	}
+
+	private static ByteBuffer map(@NonNull Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IIOException("File is too large to be memory-mapped: " + path);
+			}
+
+			// Mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+package me.saharnooby.qoi.plugin;
+
+/**
+ * Stream wrapper that counts bytes passed to or from the underlying stream and time spent in calls to it.
+ */
+interface MeteredStream {
+
+	long getIONanos();
+
+	long getByteCount();
+
+	// Returns 0 for streams that are not metered, like views of in-memory inputs
+	static long getIONanos(Object stream) {
+		return stream instanceof MeteredStream ? ((MeteredStream) stream).getIONanos() : 0;
+	}
+
+}
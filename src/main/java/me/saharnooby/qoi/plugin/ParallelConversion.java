@@ -0,0 +1,148 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converts rows of large images in parallel, splitting them into stripes of rows on the common {@link ForkJoinPool}.
+ * Images with fewer pixels than the threshold set by the {@value #THRESHOLD_PROPERTY} system property
+ * (4 megapixels by default) are converted on the calling thread. The same threshold applies to
+ * decoding of images with a {@link QOIRowIndex}, see {@link ParallelDecoding}.
+ */
+final class ParallelConversion {
+
+	static final String THRESHOLD_PROPERTY = "qoi.parallelConversionThreshold";
+
+	private static final long DEFAULT_THRESHOLD = 4L << 20;
+
+	// Stripes are not split further below this pixel count, so task overhead stays negligible
+	static final int MIN_STRIPE_PIXELS = 1 << 16;
+
+	/**
+	 * Converts all rows of the image into {@code dest}, row {@code y} starting at {@code y * width * channels}.
+	 * The converter must be safe to call from multiple threads for different rows.
+	 */
+	static void convert(int width, int height, int channels, @NonNull RowConverter converter, byte @NonNull [] dest) {
+		if (!isWorthParallelizing((long) width * height)) {
+			convertRows(width, channels, converter, dest, 0, height);
+
+			return;
+		}
+
+		convert(width, height, channels, converter, dest, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Converts all rows of the image into {@code dest} on the specified pool, regardless of the image size.
+	 */
+	static void convert(int width, int height, int channels, @NonNull RowConverter converter, byte @NonNull [] dest, @NonNull ForkJoinPool pool) {
+		int minRows = Math.max(1, MIN_STRIPE_PIXELS / width);
+
+		pool.invoke(new Stripe(width, channels, converter, dest, 0, height, minRows));
+	}
+
+	/**
+	 * Runs the task for each of {@code count} independent stripes, in parallel if the common pool has more than one thread.
+	 * The first exception thrown by a task is rethrown.
+	 */
+	static void forEachStripe(int count, @NonNull StripeTask task) throws IOException {
+		if (count < 2 || ForkJoinPool.getCommonPoolParallelism() < 2) {
+			for (int stripe = 0; stripe < count; stripe++) {
+				task.run(stripe);
+			}
+
+			return;
+		}
+
+		List<RecursiveAction> actions = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			int stripe = i;
+
+			actions.add(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					try {
+						task.run(stripe);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		}
+
+		try {
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(actions);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	static boolean isWorthParallelizing(long pixels) {
+		return pixels >= Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD) && ForkJoinPool.getCommonPoolParallelism() >= 2;
+	}
+
+	private static void convertRows(int width, int channels, @NonNull RowConverter converter, byte @NonNull [] dest, int fromY, int toY) {
+		for (int y = fromY; y < toY; y++) {
+			converter.convertRow(y, dest, y * width * channels);
+		}
+	}
+
+	private static final class Stripe extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int width;
+		private final int channels;
+		private final RowConverter converter;
+		private final byte[] dest;
+		private final int fromY;
+		private final int toY;
+		private final int minRows;
+
+		Stripe(int width, int channels, @NonNull RowConverter converter, byte @NonNull [] dest, int fromY, int toY, int minRows) {
+			this.width = width;
+			this.channels = channels;
+			this.converter = converter;
+			this.dest = dest;
+			this.fromY = fromY;
+			this.toY = toY;
+			this.minRows = minRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.toY - this.fromY <= this.minRows) {
+				convertRows(this.width, this.channels, this.converter, this.dest, this.fromY, this.toY);
+
+				return;
+			}
+
+			int middle = (this.fromY + this.toY) >>> 1;
+
+			invokeAll(
+					new Stripe(this.width, this.channels, this.converter, this.dest, this.fromY, middle, this.minRows),
+					new Stripe(this.width, this.channels, this.converter, this.dest, middle, this.toY, this.minRows)
+			);
+		}
+
+	}
+
+	interface StripeTask {
+
+		void run(int stripe) throws IOException;
+
+	}
+
+}
@@ -0,0 +1,167 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import javax.imageio.IIOException;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes stripes of rows that can be decoded independently in parallel, see {@link ParallelConversion#forEachStripe}.
+ * Stripes start either at checkpoints of a {@link QOIRowIndex} or at stripes of a {@link StripedImage}.
+ */
+final class ParallelDecoding {
+
+	// Bytes of a stripe allocated before they are read, when the length of the input is not known
+	private static final int INITIAL_STRIPE_CAPACITY = 1 << 20;
+
+	/**
+	 * Decodes all rows of the image into {@code dest} as RGB or RGBA bytes, starting stripes at checkpoints.
+	 * Each stripe reads its own view of the input, so only inputs read by {@link ByteBufferImageInputStream} are supported.
+	 * @param dataStart Stream position right after the header.
+	 * @return Stream position right after the end marker.
+	 */
+	static long decode(@NonNull ByteBufferImageInputStream input,
+	                   long dataStart,
+	                   @NonNull QOIHeader header,
+	                   @NonNull QOIRowIndex rowIndex,
+	                   byte @NonNull [] dest) throws IOException {
+		int width = header.getWidth();
+		int height = header.getHeight();
+		int stride = width * header.getChannels();
+
+		int count = rowIndex.getCheckpointCount();
+		int interval = rowIndex.getInterval();
+
+		// Neighbouring checkpoints are merged, so stripes are not too small
+		int minRows = Math.max(1, ParallelConversion.MIN_STRIPE_PIXELS / width);
+		int step = Math.max(1, (minRows + interval - 1) / interval);
+
+		// Checkpoint -1 is the start of the image
+		List<Integer> starts = new ArrayList<>();
+
+		for (int k = -1; k < count; k += step) {
+			starts.add(k);
+		}
+
+		long[] end = new long[1];
+
+		ParallelConversion.forEachStripe(starts.size(), stripe -> {
+			int checkpoint = starts.get(stripe);
+			boolean last = stripe == starts.size() - 1;
+
+			long offset = dataStart + (checkpoint < 0 ? 0 : rowIndex.getOffset(checkpoint));
+
+			int toY = last ? height : rowIndex.getRow(starts.get(stripe + 1));
+
+			try (InputStream stream = input.openInputStream(offset)) {
+				QOIStreamDecoder decoder = new QOIStreamDecoder(stream, header);
+
+				if (checkpoint >= 0) {
+					decoder.restore(rowIndex, checkpoint);
+				}
+
+				for (int y = decoder.getRow(); y < toY; y++) {
+					decoder.readRow(dest, y * stride, 0, 1, width);
+				}
+
+				if (last) {
+					decoder.readEndMarker();
+
+					end[0] = offset + decoder.getConsumedBytes();
+				}
+			}
+		});
+
+		return end[0];
+	}
+
+	/**
+	 * Decodes all stripes of the container into {@code dest} as RGB or RGBA bytes, leaving the input positioned after the container.
+	 * Stripes of buffers are decoded in place, stripes of other inputs are read into memory first.
+	 */
+	static void decode(@NonNull ImageInputStream input, @NonNull StripedImage image, byte @NonNull [] dest) throws IOException {
+		int count = image.getStripeCount();
+
+		byte[][] stripes = null;
+
+		if (!(input instanceof ByteBufferImageInputStream)) {
+			stripes = new byte[count][];
+
+			input.seek(image.getOffset(0));
+
+			for (int stripe = 0; stripe < count; stripe++) {
+				long size = image.getSize(stripe);
+
+				if (size > Integer.MAX_VALUE - 8) {
+					throw new IIOException("Stripe " + stripe + " is too large");
+				}
+
+				stripes[stripe] = readStripe(input, (int) size);
+			}
+		}
+
+		byte[][] data = stripes;
+
+		int width = image.getHeader().getWidth();
+		int stride = width * image.getHeader().getChannels();
+
+		ParallelConversion.forEachStripe(count, stripe -> {
+			try (InputStream stream = data != null ?
+					new ByteArrayInputStream(data[stripe]) :
+					((ByteBufferImageInputStream) input).openInputStream(image.getOffset(stripe))) {
+				QOIStreamDecoder decoder = new QOIStreamDecoder(stream, image.readStripeHeader(stream, stripe));
+
+				int firstRow = image.getFirstRow(stripe);
+				int rowCount = image.getRowCount(stripe);
+
+				for (int y = firstRow; y < firstRow + rowCount; y++) {
+					decoder.readRow(dest, y * stride, 0, 1, width);
+				}
+
+				decoder.readEndMarker();
+			}
+		});
+
+		input.seek(image.getEnd());
+	}
+
+	// Sizes of stripes were checked against the length of the input when it is known;
+	// otherwise the array grows as bytes are read, so a corrupted size is not allocated at once
+	private static byte[] readStripe(@NonNull ImageInputStream input, int size) throws IOException {
+		if (input.length() >= 0) {
+			byte[] b = new byte[size];
+
+			input.readFully(b);
+
+			return b;
+		}
+
+		byte[] b = new byte[Math.min(size, INITIAL_STRIPE_CAPACITY)];
+
+		int read = 0;
+
+		while (read < size) {
+			if (read == b.length) {
+				b = Arrays.copyOf(b, (int) Math.min(size, b.length * 2L));
+			}
+
+			int n = input.read(b, read, b.length - read);
+
+			if (n < 0) {
+				throw new EOFException();
+			}
+
+			read += n;
+		}
+
+		return b;
+	}
+
+}
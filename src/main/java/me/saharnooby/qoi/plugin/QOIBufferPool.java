@@ -0,0 +1,149 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread-safe pool of scratch buffers that can be shared by {@link QOIImageReader} and {@link QOIImageWriter} instances,
+ * see {@link QOIImageReader#setBufferPool} and {@link QOIImageWriter#setBufferPool}.
+ * Buffers are grouped into buckets by power of two lengths; memory held by idle buffers is capped.
+ * Contents of borrowed buffers are undefined, and their length may be greater than requested.
+ */
+public final class QOIBufferPool {
+
+	// Smaller buffers are not worth pooling, larger are not pooled to not waste memory
+	private static final int MIN_BUCKET = 10;
+	private static final int MAX_BUCKET = 30;
+
+	private final long maxBytes;
+
+	private final AtomicLong pooledBytes = new AtomicLong();
+
+	private final Buckets<byte[]> bytes = new Buckets<>(byte[]::new, array -> array.length, 1);
+	private final Buckets<int[]> ints = new Buckets<>(int[]::new, array -> array.length, 4);
+
+	/**
+	 * @param maxBytes Maximum total size of idle buffers kept in the pool.
+	 */
+	public QOIBufferPool(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Negative max bytes");
+		}
+
+		this.maxBytes = maxBytes;
+	}
+
+	public byte[] borrowBytes(int minLength) {
+		return this.bytes.borrow(minLength);
+	}
+
+	public int[] borrowInts(int minLength) {
+		return this.ints.borrow(minLength);
+	}
+
+	/**
+	 * Returns a buffer to the pool. The buffer must not be used by the caller after that.
+	 */
+	public void release(byte @NonNull [] buffer) {
+		this.bytes.release(buffer);
+	}
+
+	/**
+	 * Returns a buffer to the pool. The buffer must not be used by the caller after that.
+	 */
+	public void release(int @NonNull [] buffer) {
+		this.ints.release(buffer);
+	}
+
+	/**
+	 * @return Total size of idle buffers currently kept in the pool, in bytes.
+	 */
+	public long getPooledBytes() {
+		return this.pooledBytes.get();
+	}
+
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	private static int getBucket(int length) {
+		return Math.max(MIN_BUCKET, 32 - Integer.numberOfLeadingZeros(length - 1));
+	}
+
+	private final class Buckets<T> {
+
+		private final IntFunction<T> factory;
+		private final ToIntFunction<T> lengthFunction;
+		private final int elementSize;
+
+		private final List<Queue<T>> queues = new ArrayList<>();
+
+		Buckets(@NonNull IntFunction<T> factory, @NonNull ToIntFunction<T> lengthFunction, int elementSize) {
+			this.factory = factory;
+			this.lengthFunction = lengthFunction;
+			this.elementSize = elementSize;
+
+			for (int i = 0; i <= MAX_BUCKET; i++) {
+				this.queues.add(new ConcurrentLinkedQueue<>());
+			}
+		}
+
+		T borrow(int minLength) {
+			if (minLength < 0) {
+				throw new IllegalArgumentException("Negative length");
+			}
+
+			int bucket = getBucket(minLength);
+
+			if (bucket > MAX_BUCKET) {
+				return this.factory.apply(minLength);
+			}
+
+			T buffer = this.queues.get(bucket).poll();
+
+			if (buffer == null) {
+				return this.factory.apply(1 << bucket);
+			}
+
+			pooledBytes.addAndGet(-((long) this.elementSize << bucket));
+
+			return buffer;
+		}
+
+		void release(@NonNull T buffer) {
+			int length = this.lengthFunction.applyAsInt(buffer);
+
+			int bucket = getBucket(length);
+
+			// Buffers not created by the pool are dropped
+			if (bucket > MAX_BUCKET || length != 1 << bucket) {
+				return;
+			}
+
+			long size = (long) this.elementSize << bucket;
+
+			while (true) {
+				long current = pooledBytes.get();
+
+				if (current + size > maxBytes) {
+					return;
+				}
+
+				if (pooledBytes.compareAndSet(current, current + size)) {
+					break;
+				}
+			}
+
+			this.queues.get(bucket).offer(buffer);
+		}
+
+	}
+
+}
@@ -0,0 +1,22 @@
+package me.saharnooby.qoi.plugin;
+
+/**
+ * Ways pixels are moved between a {@link java.awt.image.RenderedImage} and RGB or RGBA rows of a QOI image, from fastest to slowest.
+ * Reported to {@link QOIMetricsListener}.
+ */
+public enum QOIConversionPath {
+
+	// Data buffer holds RGB or RGBA bytes and is encoded from or decoded into as is
+	DIRECT,
+	// Packed int pixels are encoded or decoded without converting them to bytes
+	PACKED_INT,
+	// Rows are converted by code specific to the BufferedImage type
+	TYPE_SPECIFIC,
+	// Pixels are converted one by one using the ColorModel
+	COLOR_MODEL,
+	// Tiles of an image that is not a BufferedImage are converted using the ColorModel
+	TILED,
+	// Samples are copied through Raster methods, when an ImageReadParam or ImageWriteParam selects regions or bands
+	RASTER
+
+}
@@ -0,0 +1,90 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Counts of chunks the encoder wrote for an image, by opcode, see {@link QOIImageWriter#getStatistics()}.
+ * Chunks are counted while encoding, so pixels are not scanned again; byte counts and run lengths are derived from chunk counts.
+ * For striped images, counts of all stripes are summed.
+ */
+public final class QOIEncoderStatistics {
+
+	private static final QOIOpcode[] OPCODES = QOIOpcode.values();
+
+	@Getter
+	private final long pixels;
+
+	// Indexed by opcode ordinal
+	private final long[] chunks;
+
+	QOIEncoderStatistics(long pixels, long @NonNull [] chunks) {
+		if (chunks.length != OPCODES.length) {
+			throw new IllegalArgumentException("Expected " + OPCODES.length + " chunk counts, got " + chunks.length);
+		}
+
+		this.pixels = pixels;
+		this.chunks = chunks.clone();
+	}
+
+	public long getChunks(@NonNull QOIOpcode opcode) {
+		return this.chunks[opcode.ordinal()];
+	}
+
+	public long getBytes(@NonNull QOIOpcode opcode) {
+		return this.chunks[opcode.ordinal()] * opcode.getChunkSize();
+	}
+
+	public long getChunks() {
+		long sum = 0;
+
+		for (long count : this.chunks) {
+			sum += count;
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Returns total size of chunks, not counting headers, end markers and the row index.
+	 */
+	public long getBytes() {
+		long sum = 0;
+
+		for (QOIOpcode opcode : OPCODES) {
+			sum += getBytes(opcode);
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Returns count of pixels encoded by {@link QOIOpcode#RUN} chunks; each other chunk encodes a single pixel.
+	 */
+	public long getRunPixels() {
+		return this.pixels - (getChunks() - getChunks(QOIOpcode.RUN));
+	}
+
+	/**
+	 * Returns average count of pixels in a {@link QOIOpcode#RUN} chunk, or 0 if there are none.
+	 */
+	public double getAverageRunLength() {
+		long runs = getChunks(QOIOpcode.RUN);
+
+		return runs == 0 ? 0 : (double) getRunPixels() / runs;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("QOIEncoderStatistics{pixels=").append(this.pixels);
+
+		for (QOIOpcode opcode : OPCODES) {
+			builder.append(", ").append(opcode).append('=').append(getChunks(opcode)).append(" (").append(getBytes(opcode)).append(" B)");
+		}
+
+		return builder.append(String.format(Locale.ROOT, ", averageRunLength=%.2f}", getAverageRunLength())).toString();
+	}
+
+}
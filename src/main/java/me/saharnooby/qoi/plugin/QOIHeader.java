@@ -0,0 +1,91 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+import lombok.NonNull;
+import me.saharnooby.qoi.QOIColorSpace;
+
+import javax.imageio.IIOException;
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Contains fields of a QOI header; can be read without decoding pixel data.
+ * Headers of {@link StripedImage} containers have the same layout, but a different magic value.
+ */
+@Getter
+final class QOIHeader {
+
+	static final int SIZE = 14;
+
+	private final int width;
+	private final int height;
+	private final int channels;
+	@NonNull
+	private final QOIColorSpace colorSpace;
+	// Whether this is a header of a StripedImage container
+	private final boolean striped;
+
+	QOIHeader(int width, int height, int channels, @NonNull QOIColorSpace colorSpace) {
+		this(width, height, channels, colorSpace, false);
+	}
+
+	QOIHeader(int width, int height, int channels, @NonNull QOIColorSpace colorSpace, boolean striped) {
+		this.width = width;
+		this.height = height;
+		this.channels = channels;
+		this.colorSpace = colorSpace;
+		this.striped = striped;
+	}
+
+	/**
+	 * Checks for the magic value of a QOI image or a {@link StripedImage} container.
+	 */
+	static boolean isMagic(byte @NonNull [] b) {
+		return b[0] == (byte) 'q' &&
+				b[1] == (byte) 'o' &&
+				b[2] == (byte) 'i' &&
+				(b[3] == (byte) 'f' || b[3] == StripedImage.MAGIC_SUFFIX);
+	}
+
+	static QOIHeader read(@NonNull DataInput in) throws IOException {
+		byte[] b = new byte[SIZE];
+
+		in.readFully(b);
+
+		return parse(b);
+	}
+
+	static QOIHeader parse(byte @NonNull [] b) throws IOException {
+		if (!isMagic(b)) {
+			throw new IIOException("Invalid magic value, probably not a QOI image");
+		}
+
+		// Parsed manually, so the byte order set on an ImageInputStream does not matter
+		int width = readInt(b, 4);
+		int height = readInt(b, 8);
+		int channels = b[12];
+		int colorSpace = b[13];
+
+		if (width < 1 || height < 1) {
+			throw new IIOException("Invalid image dimensions " + width + " x " + height);
+		}
+
+		if (channels != 3 && channels != 4) {
+			throw new IIOException("Invalid channel count " + channels);
+		}
+
+		if (colorSpace != 0 && colorSpace != 1) {
+			throw new IIOException("Invalid color space " + colorSpace);
+		}
+
+		return new QOIHeader(width, height, channels, colorSpace == 0 ? QOIColorSpace.SRGB : QOIColorSpace.LINEAR, b[3] == StripedImage.MAGIC_SUFFIX);
+	}
+
+	private static int readInt(byte @NonNull [] b, int offset) {
+		return ((b[offset] & 0xFF) << 24) |
+				((b[offset + 1] & 0xFF) << 16) |
+				((b[offset + 2] & 0xFF) << 8) |
+				(b[offset + 3] & 0xFF);
+	}
+
+}
@@ -15,120 +15,542 @@ import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.color.ColorSpace;
 import java.awt.image.*;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.Collections;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 public final class QOIImageReader extends ImageReader {
 
 	static final int[] OFFSETS_3 = {0, 1, 2};
 	static final int[] OFFSETS_4 = {0, 1, 2, 3};
 
+	// Frames of a sequence are concatenated QOI images; frames found so far are cached for random access
+	private final List<Long> frameOffsets = new ArrayList<>();
+	private final List<QOIHeader> frameHeaders = new ArrayList<>();
+	private boolean lastFrameFound;
+
+	// End offsets of frames that were read completely, so they don't need to be skipped again
+	private final Map<Integer, Long> frameEnds = new HashMap<>();
+
+	// Stripe tables of frames stored as striped containers
+	private final Map<Integer, StripedImage> stripedImages = new HashMap<>();
+
+	// Row indices looked up so far, null values mean that a frame has no index
+	private final Map<Integer, QOIRowIndex> rowIndices = new HashMap<>();
+
+	// Index of the first frame set by the user
+	private QOIRowIndex rowIndex;
+
+	private int imageIndex = -1;
 	private QOIImage image;
 
+	// Stream over the input, created when first needed
+	private ImageInputStream stream;
+
+	private final ScratchBuffers buffers = new ScratchBuffers();
+
+	private QOIMetricsListener metricsListener;
+
+	// Time spent reading from the input while decoding pixels of the image being read
+	private long ioNanos;
+
 	QOIImageReader(@NonNull ImageReaderSpi originatingProvider) {
 		super(originatingProvider);
 	}
 
-	private void readImage() throws IOException {
-		if (this.image != null) {
-			return;
-		}
+	@Override
+	public void setInput(Object input, boolean seekForwardOnly, boolean ignoreMetadata) {
+		super.setInput(input, seekForwardOnly, ignoreMetadata);
+
+		this.stream = null;
+		this.rowIndex = null;
+
+		clearFrames();
+	}
+
+	private void clearFrames() {
+		this.frameOffsets.clear();
+		this.frameHeaders.clear();
+		this.lastFrameFound = false;
+		this.frameEnds.clear();
+		this.stripedImages.clear();
+		this.rowIndices.clear();
+		this.imageIndex = -1;
+		this.image = null;
+	}
 
+	private ImageInputStream getInputStream() throws IOException {
 		if (this.input == null) {
 			throw new IllegalStateException("Input not set");
 		}
 
-		ImageInputStream input = (ImageInputStream) this.input;
+		if (this.stream == null) {
+			this.stream = InputUtil.open(this.input);
+		}
+
+		return this.stream;
+	}
+
+	// Reads headers of frames up to the specified one, skipping chunks of preceding frames without decoding them.
+	// Returns false if the sequence has fewer frames.
+	private boolean locateFrame(int imageIndex) throws IOException {
+		ImageInputStream input = getInputStream();
+
+		while (this.frameHeaders.size() <= imageIndex) {
+			if (this.lastFrameFound) {
+				return false;
+			}
+
+			int count = this.frameHeaders.size();
+
+			long offset;
+
+			if (count == 0) {
+				offset = input.getStreamPosition();
+			} else {
+				Long end = this.frameEnds.get(count - 1);
+
+				if (end != null) {
+					input.seek(end);
+				} else if (getHeader(count - 1).isStriped()) {
+					input.seek(getStripedImage(count - 1).getEnd());
+				} else {
+					input.seek(this.frameOffsets.get(count - 1) + QOIHeader.SIZE);
+
+					try (InputStream stream = InputUtil.openStream(input)) {
+						QOIStreamDecoder.skipImage(stream, this.frameHeaders.get(count - 1));
+					}
+
+					this.frameEnds.put(count - 1, input.getStreamPosition());
+				}
+
+				// A row index block may follow the frame
+				byte[] head = peek(input, 8);
+
+				int indexSize = head != null ? QOIRowIndex.getSize(head) : -1;
+
+				if (indexSize > 0) {
+					input.seek(input.getStreamPosition() + indexSize);
+				}
+
+				offset = input.getStreamPosition();
+
+				if (!hasNextFrame(input)) {
+					this.lastFrameFound = true;
+
+					return false;
+				}
+			}
+
+			this.frameHeaders.add(readHeader(input, offset));
+			this.frameOffsets.add(offset);
+		}
+
+		return true;
+	}
+
+	// Checks whether another frame starts at the current position; anything other than a frame header ends the sequence
+	private static boolean hasNextFrame(@NonNull ImageInputStream input) throws IOException {
+		byte[] magic = peek(input, 4);
+
+		return magic != null && QOIHeader.isMagic(magic);
+	}
+
+	// Reads bytes at the current position without moving it, returns null if the stream ends earlier
+	private static byte[] peek(@NonNull ImageInputStream input, int count) throws IOException {
+		byte[] b = new byte[count];
+
+		input.mark();
+
+		try {
+			for (int i = 0; i < count; i++) {
+				int value = input.read();
+
+				if (value < 0) {
+					return null;
+				}
+
+				b[i] = (byte) value;
+			}
+		} finally {
+			input.reset();
+		}
+
+		return b;
+	}
+
+	// Reads only the header, leaving the stream positioned at its start
+	private static QOIHeader readHeader(@NonNull ImageInputStream input, long offset) throws IOException {
+		input.seek(offset);
+		input.mark();
+
+		try {
+			return QOIHeader.read(input);
+		} finally {
+			input.reset();
+		}
+	}
+
+	private QOIHeader getHeader(int imageIndex) {
+		return this.frameHeaders.get(imageIndex);
+	}
+
+	private void readImage(int imageIndex) throws IOException {
+		if (this.imageIndex == imageIndex) {
+			return;
+		}
+
+		this.image = null;
+		this.imageIndex = -1;
+
+		QOIHeader header = getHeader(imageIndex);
+
+		int width = header.getWidth();
+		int height = header.getHeight();
+		int stride = Math.multiplyExact(width, header.getChannels());
+
+		byte[] pixels = new byte[Math.multiplyExact(stride, height)];
+
+		ImageInputStream input = getInputStream();
+
+		// Checkpoints are used only to decode stripes of buffers in parallel, so the index is not looked for otherwise
+		QOIRowIndex rowIndex = null;
+
+		if (!header.isStriped() && input instanceof ByteBufferImageInputStream && ParallelConversion.isWorthParallelizing((long) width * height)) {
+			rowIndex = getRowIndex(imageIndex);
+		}
+
+		if (header.isStriped()) {
+			ParallelDecoding.decode(input, getStripedImage(imageIndex), pixels);
+		} else if (rowIndex != null) {
+			long end = ParallelDecoding.decode((ByteBufferImageInputStream) input, this.frameOffsets.get(imageIndex) + QOIHeader.SIZE, header, rowIndex, pixels);
+
+			input.seek(end);
+		} else {
+			// Decoded here rather than by QOIUtil.readImage, which may read past the end of the image;
+			// the stream is left positioned right after the end marker
+			try (InputStream stream = openPixelData(imageIndex, 0)) {
+				QOIStreamDecoder decoder = new QOIStreamDecoder(stream, header);
+
+				for (int y = 0; y < height; y++) {
+					decoder.readRow(pixels, y * stride, 0, 1, width);
+				}
+
+				decoder.readEndMarker();
+
+				this.ioNanos += MeteredStream.getIONanos(stream);
+			}
+		}
+
+		this.frameEnds.put(imageIndex, input.getStreamPosition());
+
+		this.image = QOIUtil.createFromPixelData(pixels, width, height, header.getChannels(), header.getColorSpace());
+		this.imageIndex = imageIndex;
+	}
+
+	// Returns a stream positioned at the specified offset from the end of the frame header;
+	// closing it positions the input after the last consumed byte
+	private InputStream openPixelData(int imageIndex, long offset) throws IOException {
+		ImageInputStream input = getInputStream();
+
+		input.seek(this.frameOffsets.get(imageIndex) + QOIHeader.SIZE + offset);
+
+		return InputUtil.openStream(input);
+	}
+
+	private StripedImage getStripedImage(int imageIndex) throws IOException {
+		StripedImage image = this.stripedImages.get(imageIndex);
+
+		if (image == null) {
+			image = StripedImage.read(getInputStream(), this.frameOffsets.get(imageIndex), getHeader(imageIndex));
+
+			this.stripedImages.put(imageIndex, image);
+		}
+
+		return image;
+	}
+
+	/**
+	 * Sets a row index of the first image, for example one read from a separate file.
+	 * Indices appended to images are found without calling this method. The index is cleared when input changes.
+	 * @param rowIndex Row index, or {@code null} to use only indices appended to images.
+	 */
+	public void setRowIndex(QOIRowIndex rowIndex) {
+		this.rowIndex = rowIndex;
+	}
+
+	public QOIRowIndex getRowIndex() {
+		return this.rowIndex;
+	}
+
+	// Returns the index set for the frame or appended to it, or null if there is none or the appended one is damaged
+	private QOIRowIndex getRowIndex(int imageIndex) throws IOException {
+		QOIHeader header = getHeader(imageIndex);
+
+		// Stripes of a container can be decoded independently without an index
+		if (header.isStriped()) {
+			return null;
+		}
+
+		if (imageIndex == 0 && this.rowIndex != null) {
+			if (!this.rowIndex.matches(header)) {
+				throw new IIOException("Row index of a " + this.rowIndex.getWidth() + " x " + this.rowIndex.getHeight() + " image does not match the image");
+			}
+
+			return this.rowIndex;
+		}
+
+		if (this.rowIndices.containsKey(imageIndex)) {
+			return this.rowIndices.get(imageIndex);
+		}
+
+		QOIRowIndex rowIndex = findRowIndex(imageIndex, header);
+
+		// Until the end of the frame is known, only a block at the end of the input is looked for,
+		// so a missing block is looked for again once the frame was scanned
+		if (rowIndex != null || this.frameEnds.get(imageIndex) != null) {
+			this.rowIndices.put(imageIndex, rowIndex);
+		}
+
+		return rowIndex;
+	}
+
+	private QOIRowIndex findRowIndex(int imageIndex, @NonNull QOIHeader header) throws IOException {
+		ImageInputStream input = getInputStream();
+
+		long dataStart = this.frameOffsets.get(imageIndex) + QOIHeader.SIZE;
+
+		Long end = this.frameEnds.get(imageIndex);
+
+		long blockOffset;
+
+		if (end != null) {
+			blockOffset = end;
+		} else {
+			// Without scanning the frame, only a block at the end of the input can be found
+			long length = input.length();
+
+			if (length < dataStart + 8) {
+				return null;
+			}
+
+			input.seek(length - 8);
+
+			byte[] footer = new byte[8];
+
+			input.readFully(footer);
+
+			int size = QOIRowIndex.getSizeFromFooter(footer);
+
+			if (size < 0) {
+				return null;
+			}
+
+			blockOffset = length - size;
+		}
+
+		if (blockOffset < dataStart) {
+			return null;
+		}
+
+		QOIRowIndex rowIndex;
+
+		try {
+			rowIndex = QOIRowIndex.read(input, blockOffset);
+		} catch (IIOException | EOFException e) {
+			// Appended indices are optional, the image is readable without a damaged one
+			return null;
+		}
+
+		// A block at the end of the input may belong to another frame
+		if (rowIndex == null || !rowIndex.matches(header) || dataStart + rowIndex.getDataSize() != blockOffset) {
+			return null;
+		}
+
+		return rowIndex;
+	}
 
-		// This assumes that no additional data is stored in the
-		// stream, otherwise buffering will corrupt the stream.
-		this.image = QOIUtil.readImage(new WrappedImageInputStream(input));
+	/**
+	 * Sets a pool to borrow scratch buffers from. Buffers are kept between reads and returned on {@link #reset()} and {@link #dispose()}.
+	 * @param pool Buffer pool, or {@code null} to allocate buffers without pooling.
+	 */
+	public void setBufferPool(QOIBufferPool pool) {
+		this.buffers.setPool(pool);
 	}
 
-	private void checkIndex(int imageIndex) {
-		if (imageIndex != 0) {
-			throw new IndexOutOfBoundsException();
+	public QOIBufferPool getBufferPool() {
+		return this.buffers.getPool();
+	}
+
+	/**
+	 * Sets a listener to report metrics of read images to.
+	 * @param listener Metrics listener, or {@code null} to not collect metrics.
+	 */
+	public void setMetricsListener(QOIMetricsListener listener) {
+		this.metricsListener = listener;
+	}
+
+	public QOIMetricsListener getMetricsListener() {
+		return this.metricsListener;
+	}
+
+	private void checkIndex(int imageIndex) throws IOException {
+		if (imageIndex < this.minIndex) {
+			throw new IndexOutOfBoundsException("Image index " + imageIndex + " is less than min index " + this.minIndex);
+		}
+
+		if (!locateFrame(imageIndex)) {
+			throw new IndexOutOfBoundsException("Image index " + imageIndex + " is out of bounds, image count is " + this.frameHeaders.size());
 		}
 	}
 
 	@Override
-	public int getNumImages(boolean allowSearch) {
-		return 1;
+	public int getNumImages(boolean allowSearch) throws IOException {
+		getInputStream();
+
+		if (!this.lastFrameFound) {
+			if (!allowSearch) {
+				return -1;
+			}
+
+			if (this.seekForwardOnly) {
+				throw new IllegalStateException("Can't search for images when seekForwardOnly is set");
+			}
+
+			locateFrame(Integer.MAX_VALUE);
+		}
+
+		return this.frameHeaders.size();
 	}
 
 	@Override
 	public int getWidth(int imageIndex) throws IOException {
 		checkIndex(imageIndex);
 
-		readImage();
-
-		return this.image.getWidth();
+		return getHeader(imageIndex).getWidth();
 	}
 
 	@Override
 	public int getHeight(int imageIndex) throws IOException {
 		checkIndex(imageIndex);
 
-		readImage();
-
-		return this.image.getHeight();
+		return getHeader(imageIndex).getHeight();
 	}
 
 	@Override
 	public Iterator<ImageTypeSpecifier> getImageTypes(int imageIndex) throws IOException {
-		readImage();
+		checkIndex(imageIndex);
+
+		QOIHeader header = getHeader(imageIndex);
+
+		boolean hasAlpha = header.getChannels() == 4;
 
-		boolean hasAlpha = this.image.getChannels() == 4;
+		ColorSpace colorSpace = getAwtColorSpace(header.getColorSpace());
 
-		ColorSpace colorSpace = getAwtColorSpace(this.image.getColorSpace());
+		List<ImageTypeSpecifier> types = new ArrayList<>();
 
-		ImageTypeSpecifier type = ImageTypeSpecifier.createInterleaved(
+		// Default type, pixel data can be used without conversion
+		types.add(ImageTypeSpecifier.createInterleaved(
 				colorSpace,
 				hasAlpha ? OFFSETS_4 : OFFSETS_3,
 				DataBuffer.TYPE_BYTE,
 				hasAlpha,
 				false
-		);
+		));
+
+		// Packed int types are drawn faster by Java2D; pixels are decoded directly into them
+		if (header.getColorSpace() == QOIColorSpace.SRGB) {
+			if (hasAlpha) {
+				types.add(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB));
+				types.add(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB_PRE));
+			} else {
+				types.add(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB));
+			}
+		} else {
+			types.add(ImageTypeSpecifier.createPacked(colorSpace, 0xFF0000, 0xFF00, 0xFF, hasAlpha ? 0xFF000000 : 0, DataBuffer.TYPE_INT, false));
 
-		return Collections.singletonList(type).iterator();
+			if (hasAlpha) {
+				types.add(ImageTypeSpecifier.createPacked(colorSpace, 0xFF0000, 0xFF00, 0xFF, 0xFF000000, DataBuffer.TYPE_INT, true));
+			}
+		}
+
+		return types.iterator();
 	}
 
 	@Override
 	public IIOMetadata getStreamMetadata() {
-		// No metadata supported
+		// QOI has no stream metadata
 		return null;
 	}
 
+	/**
+	 * Returns header fields of the image as {@link QOIMetadata}; pixel data is not decoded.
+	 */
 	@Override
-	public IIOMetadata getImageMetadata(int imageIndex) {
-		// No metadata supported
-		return null;
+	public IIOMetadata getImageMetadata(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+
+		return QOIMetadata.fromHeader(getHeader(imageIndex));
 	}
 
 	@Override
 	public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
+		long startNanos = System.nanoTime();
+
+		this.ioNanos = 0;
+
+		FlightRecorderEvents.Read event = new FlightRecorderEvents.Read();
+		event.begin();
+
 		checkIndex(imageIndex);
 
+		if (this.seekForwardOnly && imageIndex > this.minIndex) {
+			// Preceding frames will never be read again
+			getInputStream().flushBefore(this.frameOffsets.get(imageIndex));
+
+			this.minIndex = imageIndex;
+		}
+
 		clearAbortRequest();
 
 		processImageStarted(imageIndex);
 
-		readImage();
+		// Fast path
+		if (param == null || ImageParamUtil.isDefault(param)) {
+			boolean decoded = this.imageIndex != imageIndex;
 
-		int width = this.image.getWidth();
-		int height = this.image.getHeight();
+			readImage(imageIndex);
 
-		BufferedImage source = convertToBufferedImage(this.image);
+			long conversionStart = System.nanoTime();
+
+			BufferedImage result = convertToBufferedImage(this.image);
+
+			long end = System.nanoTime();
+
+			long pixels = (long) result.getWidth() * result.getHeight();
+			long bytes = decoded ? this.frameEnds.get(imageIndex) - this.frameOffsets.get(imageIndex) : 0;
+
+			reportRead(event, imageIndex, pixels, bytes, QOIConversionPath.DIRECT, startNanos, end - conversionStart, end);
 
-		// Fast path
-		if (param == null || ImageParamUtil.isDefault(param)) {
 			processImageComplete();
 
-			return source;
+			return result;
 		}
 
+		QOIHeader header = getHeader(imageIndex);
+
+		int width = header.getWidth();
+		int height = header.getHeight();
+		int channels = header.getChannels();
+
 		Rectangle sourceRegion = getSourceRegion(param, width, height);
 
 		int sourceXSubsampling = param.getSourceXSubsampling();
@@ -137,7 +559,10 @@ public final class QOIImageReader extends ImageReader {
 		int[] destinationBands = param.getDestinationBands();
 		Point destinationOffset = param.getDestinationOffset();
 
-		BufferedImage dest = getDestination(param, getImageTypes(0), width, height);
+		// getDestination would create all image types only to return the supplied destination
+		BufferedImage dest = param.getDestination() != null ?
+				param.getDestination() :
+				getDestination(param, getImageTypes(imageIndex), width, height);
 
 		SampleModel destSampleModel = dest.getSampleModel();
 
@@ -149,23 +574,10 @@ public final class QOIImageReader extends ImageReader {
 			}
 		}
 
-		checkReadParamBandSettings(param, this.image.getChannels(), destBands);
+		checkReadParamBandSettings(param, channels, destBands);
 
-		WritableRaster sourceRaster = source.getWritableTile(0, 0);
 		WritableRaster destRaster = dest.getWritableTile(0, 0);
 
-		if (sourceBands != null) {
-			sourceRaster = sourceRaster.createWritableChild(
-					0,
-					0,
-					width,
-					height,
-					0,
-					0,
-					sourceBands
-			);
-		}
-
 		if (destinationBands != null) {
 			destRaster = destRaster.createWritableChild(
 					0,
@@ -178,59 +590,268 @@ public final class QOIImageReader extends ImageReader {
 			);
 		}
 
+		if (sourceBands == null) {
+			sourceBands = channels == 4 ? OFFSETS_4 : OFFSETS_3;
+		}
+
+		int bandCount = sourceBands.length;
+
+		// Range of subsampled columns and rows that land inside the destination
 		int destMinX = destRaster.getMinX();
-		int destMaxX = destMinX + destRaster.getWidth() - 1;
 		int destMinY = destRaster.getMinY();
-		int destMaxY = destMinY + destRaster.getHeight() - 1;
 
-		int[] pixel = new int[sourceRaster.getNumBands()];
+		int firstColumn = Math.max(0, destMinX - destinationOffset.x);
+		int lastColumn = Math.min(
+				(sourceRegion.width + sourceXSubsampling - 1) / sourceXSubsampling,
+				destMinX + destRaster.getWidth() - destinationOffset.x
+		);
 
-		for (int y = sourceRegion.y; y < sourceRegion.y + sourceRegion.height; y += sourceYSubsampling) {
-			if (y < 0 || y >= height) {
-				continue;
-			}
+		int firstRow = Math.max(0, destMinY - destinationOffset.y);
+		int lastRow = Math.min(
+				(sourceRegion.height + sourceYSubsampling - 1) / sourceYSubsampling,
+				destMinY + destRaster.getHeight() - destinationOffset.y
+		);
 
-			int destY = destinationOffset.y + (y - sourceRegion.y) / sourceYSubsampling;
+		if (firstColumn >= lastColumn || firstRow >= lastRow) {
+			reportRead(event, imageIndex, 0, 0, QOIConversionPath.RASTER, startNanos, 0, System.nanoTime());
 
-			if (destY < destMinY || destY > destMaxY) {
-				continue;
-			}
+			processImageComplete();
 
-			for (int x = sourceRegion.x; x < sourceRegion.x + sourceRegion.width; x += sourceXSubsampling) {
-				if (x < 0 || x >= width) {
-					continue;
-				}
+			return dest;
+		}
 
-				int destX = destinationOffset.x + (x - sourceRegion.x) / sourceXSubsampling;
+		int columnCount = lastColumn - firstColumn;
 
-				if (destX < destMinX || destX > destMaxX) {
-					continue;
-				}
+		// Destinations with packed ARGB ints or RGB(A) bytes receive decoded pixels directly
+		boolean defaultBands = param.getSourceBands() == null && destinationBands == null;
+		boolean packed = defaultBands && isPackedArgb(dest);
+		boolean interleaved = defaultBands && isInterleaved(dest, channels);
+		boolean premultiply = packed && dest.isAlphaPremultiplied();
 
-				sourceRaster.getPixel(x, y, pixel);
+		int[] packedData = packed ? ((DataBufferInt) destRaster.getDataBuffer()).getData() : null;
+		byte[] interleavedData = interleaved ? ((DataBufferByte) destRaster.getDataBuffer()).getData() : null;
 
-				destRaster.setPixel(destX, destY, pixel);
-			}
+		// Only subsampled pixels are kept, so no full resolution buffer is needed
+		int[] destRow = packed || interleaved ? null : this.buffers.getInts(columnCount * bandCount);
+
+		boolean timed = this.metricsListener != null;
+		long conversionNanos = 0;
+
+		// Closing the decoder gives bytes read ahead by it back to the input
+		try (RowDecoder rows = new RowDecoder(imageIndex)) {
+			for (int r = firstRow; r < lastRow; r++) {
+				int y = sourceRegion.y + r * sourceYSubsampling;
+
+				int firstX = sourceRegion.x + firstColumn * sourceXSubsampling;
+				int destX = destinationOffset.x + firstColumn;
+				int destY = destinationOffset.y + r;
 
-			processImageProgress((y - sourceRegion.y) * 100F / sourceRegion.height);
+				// Rows above the region and between subsampled rows are decoded only to advance decoder state
+				QOIStreamDecoder decoder = rows.seek(y);
 
-			if (abortRequested()) {
-				processReadAborted();
+				if (packed) {
+					int offset = RasterUtil.getOffset(destRaster, destX, destY);
 
-				return dest;
+					decoder.readPackedRow(packedData, offset, firstX, sourceXSubsampling, columnCount, premultiply);
+				} else if (interleaved) {
+					int offset = RasterUtil.getOffset(destRaster, destX, destY);
+
+					decoder.readRow(interleavedData, offset, firstX, sourceXSubsampling, columnCount);
+				} else {
+					decoder.readRow(destRow, sourceBands, firstX, sourceXSubsampling, columnCount);
+
+					long conversionStart = timed ? System.nanoTime() : 0;
+
+					destRaster.setPixels(destX, destY, columnCount, 1, destRow);
+
+					if (timed) {
+						conversionNanos += System.nanoTime() - conversionStart;
+					}
+				}
+
+				processImageProgress((y - sourceRegion.y) * 100F / sourceRegion.height);
+
+				if (abortRequested()) {
+					processReadAborted();
+
+					return dest;
+				}
 			}
 		}
 
+		// Rows below the last requested one are not read at all
+
+		long pixels = (long) columnCount * (lastRow - firstRow);
+		long bytes = getInputStream().getStreamPosition() - this.frameOffsets.get(imageIndex);
+
+		QOIConversionPath path = packed ? QOIConversionPath.PACKED_INT : interleaved ? QOIConversionPath.DIRECT : QOIConversionPath.RASTER;
+
+		reportRead(event, imageIndex, pixels, bytes, path, startNanos, conversionNanos, System.nanoTime());
+
 		processImageComplete();
 
 		return dest;
 	}
 
+	// Reports a completely read image to the metrics listener and Flight Recorder
+	private void reportRead(@NonNull FlightRecorderEvents.Read event,
+	                        int imageIndex,
+	                        long pixels,
+	                        long bytes,
+	                        @NonNull QOIConversionPath path,
+	                        long startNanos,
+	                        long conversionNanos,
+	                        long endNanos) {
+		if (this.metricsListener != null) {
+			long decodeNanos = endNanos - startNanos - this.ioNanos - conversionNanos;
+
+			this.metricsListener.imageRead(pixels, bytes, path, this.ioNanos, decodeNanos, conversionNanos);
+		}
+
+		if (event.shouldCommit()) {
+			QOIHeader header = getHeader(imageIndex);
+
+			event.imageIndex = imageIndex;
+			event.width = header.getWidth();
+			event.height = header.getHeight();
+			event.channels = header.getChannels();
+			event.pixels = pixels;
+			event.bytes = bytes;
+			event.path = path.name();
+			event.commit();
+		}
+	}
+
 	@Override
 	public void reset() {
 		super.reset();
 
-		this.image = null;
+		clearFrames();
+		this.buffers.release();
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+
+		this.stream = null;
+
+		this.buffers.release();
+	}
+
+	// Decodes rows of a frame in increasing order. Decoding starts from the last checkpoint of the row index
+	// above the first requested row; frames stored as stripes are read by a separate decoder for each stripe.
+	private final class RowDecoder implements Closeable {
+
+		private final int imageIndex;
+
+		private InputStream stream;
+		private QOIStreamDecoder decoder;
+
+		// Rows of the frame covered by the decoder; rows of the decoder are counted from firstRow
+		private int firstRow;
+		private int endRow;
+
+		RowDecoder(int imageIndex) {
+			this.imageIndex = imageIndex;
+		}
+
+		// Returns the decoder with the specified row of the frame being the next one
+		QOIStreamDecoder seek(int y) throws IOException {
+			if (this.decoder == null || y < this.firstRow + this.decoder.getRow() || y >= this.endRow) {
+				open(y);
+			}
+
+			this.decoder.skipRows(y - this.firstRow - this.decoder.getRow());
+
+			return this.decoder;
+		}
+
+		private void open(int y) throws IOException {
+			close();
+
+			QOIHeader header = getHeader(this.imageIndex);
+
+			if (header.isStriped()) {
+				StripedImage image = getStripedImage(this.imageIndex);
+
+				int stripe = image.getStripe(y);
+
+				ImageInputStream input = getInputStream();
+
+				input.seek(image.getOffset(stripe));
+
+				this.stream = InputUtil.openStream(input);
+				this.decoder = new QOIStreamDecoder(this.stream, image.readStripeHeader(this.stream, stripe));
+				this.firstRow = image.getFirstRow(stripe);
+				this.endRow = this.firstRow + image.getRowCount(stripe);
+			} else {
+				QOIRowIndex rowIndex = getRowIndex(this.imageIndex);
+
+				int checkpoint = rowIndex != null ? rowIndex.findCheckpoint(y) : -1;
+
+				this.stream = openPixelData(this.imageIndex, checkpoint >= 0 ? rowIndex.getOffset(checkpoint) : 0);
+				this.decoder = new QOIStreamDecoder(this.stream, header);
+				this.firstRow = 0;
+				this.endRow = header.getHeight();
+
+				if (checkpoint >= 0) {
+					this.decoder.restore(rowIndex, checkpoint);
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			InputStream stream = this.stream;
+
+			this.stream = null;
+			this.decoder = null;
+
+			if (stream != null) {
+				stream.close();
+
+				QOIImageReader.this.ioNanos += MeteredStream.getIONanos(stream);
+			}
+		}
+
+	}
+
+	// Checks that pixels of the image are ints laid out as in TYPE_INT_ARGB or TYPE_INT_RGB
+	private static boolean isPackedArgb(@NonNull BufferedImage image) {
+		WritableRaster raster = image.getRaster();
+
+		if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel) ||
+				!(raster.getDataBuffer() instanceof DataBufferInt) ||
+				raster.getDataBuffer().getNumBanks() != 1) {
+			return false;
+		}
+
+		int[] masks = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getBitMasks();
+
+		return masks.length >= 3 &&
+				masks[0] == 0xFF0000 &&
+				masks[1] == 0xFF00 &&
+				masks[2] == 0xFF &&
+				(masks.length == 3 || masks[3] == 0xFF000000);
+	}
+
+	// Checks that pixels of the image are stored as non-premultiplied RGB or RGBA bytes, like in the default image type
+	private static boolean isInterleaved(@NonNull BufferedImage image, int channels) {
+		WritableRaster raster = image.getRaster();
+
+		if (image.isAlphaPremultiplied() ||
+				!(raster.getSampleModel() instanceof PixelInterleavedSampleModel) ||
+				!(raster.getDataBuffer() instanceof DataBufferByte) ||
+				raster.getDataBuffer().getNumBanks() != 1) {
+			return false;
+		}
+
+		PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) raster.getSampleModel();
+
+		return model.getNumBands() == channels &&
+				model.getPixelStride() == channels &&
+				Arrays.equals(model.getBandOffsets(), channels == 4 ? OFFSETS_4 : OFFSETS_3);
 	}
 
 	public static BufferedImage convertToBufferedImage(@NonNull QOIImage image) {
@@ -2,7 +2,6 @@ package me.saharnooby.qoi.plugin;
 
 import javax.imageio.ImageReader;
 import javax.imageio.spi.ImageReaderSpi;
-import javax.imageio.stream.ImageInputStream;
 import java.io.IOException;
 import java.util.Locale;
 
@@ -20,16 +19,16 @@ public final class QOIImageReaderSPI extends ImageReaderSpi {
 				READER_CLASS_NAME,
 				INPUT_TYPES,
 				new String[] {WRITER_SPI_CLASS_NAME},
-				// Standard stream metadata is not supported
+				// QOI has no stream metadata
 				false,
 				null,
 				null,
 				null,
 				null,
-				// Standard image metadata is not supported
-				false,
-				null,
-				null,
+				// Image metadata is read from the header
+				true,
+				QOIMetadata.NATIVE_FORMAT_NAME,
+				METADATA_FORMAT_CLASS_NAME,
 				null,
 				null
 		);
@@ -37,20 +36,20 @@ public final class QOIImageReaderSPI extends ImageReaderSpi {
 
 	@Override
 	public boolean canDecodeInput(Object source) throws IOException {
-		if (!(source instanceof ImageInputStream)) {
-			return false;
-		}
+		FlightRecorderEvents.Probe event = new FlightRecorderEvents.Probe();
+		event.begin();
 
-		ImageInputStream in = (ImageInputStream) source;
-		byte[] b = new byte[4];
-		in.mark();
-		in.readFully(b);
-		in.reset();
+		byte[] b = InputUtil.peek(source, 4);
+
+		boolean matched = b != null && QOIHeader.isMagic(b);
+
+		if (event.shouldCommit()) {
+			event.inputType = source.getClass().getName();
+			event.matched = matched;
+			event.commit();
+		}
 
-		return b[0] == (byte) 'q' &&
-				b[1] == (byte) 'o' &&
-				b[2] == (byte) 'i' &&
-				b[3] == (byte) 'f';
+		return matched;
 	}
 
 	@Override
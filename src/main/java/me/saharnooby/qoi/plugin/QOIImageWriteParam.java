@@ -0,0 +1,60 @@
+package me.saharnooby.qoi.plugin;
+
+import javax.imageio.ImageWriteParam;
+import java.util.Locale;
+
+/**
+ * Write parameters of {@link QOIImageWriter}, returned by {@link QOIImageWriter#getDefaultWriteParam()}.
+ */
+public final class QOIImageWriteParam extends ImageWriteParam {
+
+	private int rowIndexInterval;
+	private int stripeCount;
+
+	public QOIImageWriteParam() {
+		this(Locale.getDefault());
+	}
+
+	public QOIImageWriteParam(Locale locale) {
+		super(locale);
+	}
+
+	/**
+	 * Makes the writer append a {@link QOIRowIndex} with a checkpoint every {@code interval} rows after each image.
+	 * The image stays readable by any QOI decoder, but the output gets larger than
+	 * {@link QOIImageWriter#getMaxEncodedSize}, by 272 bytes per checkpoint.
+	 * @param interval Number of rows between checkpoints, or 0 to not write an index.
+	 */
+	public void setRowIndexInterval(int interval) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("Negative row index interval");
+		}
+
+		this.rowIndexInterval = interval;
+	}
+
+	public int getRowIndexInterval() {
+		return this.rowIndexInterval;
+	}
+
+	/**
+	 * Makes the writer split each image into horizontal stripes stored as independent QOI images in a container,
+	 * so they are encoded and decoded in parallel. The container is a few bytes larger than a single QOI image,
+	 * and compression is slightly worse at stripe boundaries. Containers are read by {@link QOIImageReader},
+	 * but not by other QOI decoders. Can't be combined with a row index.
+	 * @param count Number of stripes, usually the number of cores; or 0 to write a plain QOI image.
+	 *              Images with fewer rows get fewer stripes.
+	 */
+	public void setStripeCount(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Negative stripe count");
+		}
+
+		this.stripeCount = count;
+	}
+
+	public int getStripeCount() {
+		return this.stripeCount;
+	}
+
+}
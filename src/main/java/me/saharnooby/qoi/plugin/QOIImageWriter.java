@@ -9,55 +9,225 @@ import javax.imageio.IIOImage;
 import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
 import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
 import javax.imageio.spi.ImageWriterSpi;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
+import java.awt.color.ColorSpace;
 import java.awt.image.*;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 public final class QOIImageWriter extends ImageWriter {
 
+	private final ScratchBuffers buffers = new ScratchBuffers();
+
+	// Index of the next frame written by writeToSequence, or -1 if no sequence is being written
+	private int sequenceIndex = -1;
+
+	// Row index interval and stripe count of the image being written, 0 if not used
+	private int rowIndexInterval;
+	private int stripeCount;
+
+	// Header fields of the image being written, taken from its metadata; channel count is 0 if it is taken from the image
+	private int channels;
+	private QOIColorSpace colorSpace = QOIColorSpace.SRGB;
+
+	private QOIMetricsListener metricsListener;
+
+	// Metrics of the image being written; conversion time is only measured when a listener is set and rows are converted sequentially
+	private long startNanos;
+	private long conversionNanos;
+	private QOIConversionPath path;
+
+	private FlightRecorderEvents.Write event;
+
+	// Chunk counts of the image being written by opcode ordinal, and statistics of the last completely written image
+	private final long[] chunkCounts = new long[QOIOpcode.values().length];
+	private QOIEncoderStatistics statistics;
+
 	QOIImageWriter(@NonNull ImageWriterSpi originatingProvider) {
 		super(originatingProvider);
 	}
 
+	/**
+	 * Sets a pool to borrow scratch buffers from. Buffers are kept between writes and returned on {@link #reset()} and {@link #dispose()}.
+	 * @param pool Buffer pool, or {@code null} to allocate buffers without pooling.
+	 */
+	public void setBufferPool(QOIBufferPool pool) {
+		this.buffers.setPool(pool);
+	}
+
+	public QOIBufferPool getBufferPool() {
+		return this.buffers.getPool();
+	}
+
+	/**
+	 * Sets a listener to report metrics of written images to.
+	 * @param listener Metrics listener, or {@code null} to not collect metrics.
+	 */
+	public void setMetricsListener(QOIMetricsListener listener) {
+		this.metricsListener = listener;
+	}
+
+	public QOIMetricsListener getMetricsListener() {
+		return this.metricsListener;
+	}
+
+	/**
+	 * Returns counts of chunks by opcode in the last image written completely by this writer,
+	 * or {@code null} if the last write was aborted or failed. Chunks are counted during encoding at no extra cost.
+	 */
+	public QOIEncoderStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	@Override
+	public void setOutput(Object output) {
+		super.setOutput(output);
+
+		this.sequenceIndex = -1;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+
+		this.buffers.release();
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+
+		this.buffers.release();
+	}
+
+	@Override
+	public ImageWriteParam getDefaultWriteParam() {
+		return new QOIImageWriteParam(getLocale());
+	}
+
 	@Override
 	public IIOMetadata getDefaultStreamMetadata(ImageWriteParam param) {
-		// Metadata is not supported
+		// QOI has no stream metadata
 		return null;
 	}
 
+	/**
+	 * Returns {@link QOIMetadata} with channel count and color space the image would be written with.
+	 */
 	@Override
 	public IIOMetadata getDefaultImageMetadata(ImageTypeSpecifier imageType, ImageWriteParam param) {
-		// Metadata is not supported
-		return null;
+		if (imageType == null) {
+			return new QOIMetadata(0, 0, 4, QOIColorSpace.SRGB);
+		}
+
+		return new QOIMetadata(0, 0, getChannels(imageType.getColorModel()), getColorSpace(imageType.getColorModel()));
 	}
 
 	@Override
 	public IIOMetadata convertStreamMetadata(IIOMetadata inData, ImageWriteParam param) {
-		// Metadata is not supported
+		// QOI has no stream metadata
 		return null;
 	}
 
+	/**
+	 * Converts {@link QOIMetadata} or metadata supporting the standard format into {@link QOIMetadata};
+	 * fields missing from the metadata are taken from {@link #getDefaultImageMetadata}.
+	 */
 	@Override
-	public IIOMetadata convertImageMetadata(IIOMetadata inData, ImageTypeSpecifier imageType, ImageWriteParam param) {
-		// Metadata is not supported
-		return null;
+	public IIOMetadata convertImageMetadata(@NonNull IIOMetadata inData, ImageTypeSpecifier imageType, ImageWriteParam param) {
+		QOIMetadata defaults = (QOIMetadata) getDefaultImageMetadata(imageType, param);
+
+		return convertImageMetadata(inData, defaults.getChannels(), defaults.getColorSpace());
+	}
+
+	@Override
+	public boolean canWriteSequence() {
+		return true;
+	}
+
+	/**
+	 * Starts writing a sequence of frames. Frames are stored as complete QOI images one after another,
+	 * so the first frame can be read by any QOI decoder.
+	 */
+	@Override
+	public void prepareWriteSequence(IIOMetadata streamMetadata) {
+		if (this.output == null) {
+			throw new IllegalStateException("Output not set");
+		}
+
+		this.sequenceIndex = 0;
+	}
+
+	@Override
+	public void writeToSequence(@NonNull IIOImage image, ImageWriteParam param) throws IOException {
+		if (this.sequenceIndex < 0) {
+			throw new IllegalStateException("prepareWriteSequence was not called");
+		}
+
+		write(this.sequenceIndex, image, param);
+
+		this.sequenceIndex++;
+	}
+
+	@Override
+	public void endWriteSequence() {
+		if (this.sequenceIndex < 0) {
+			throw new IllegalStateException("prepareWriteSequence was not called");
+		}
+
+		this.sequenceIndex = -1;
 	}
 
 	@Override
 	public void write(IIOMetadata streamMetadata, IIOImage image, ImageWriteParam param) throws IOException {
+		write(0, image, param);
+	}
+
+	private void write(int imageIndex, @NonNull IIOImage image, ImageWriteParam param) throws IOException {
+		this.startNanos = System.nanoTime();
+		this.conversionNanos = 0;
+
+		Arrays.fill(this.chunkCounts, 0);
+		this.statistics = null;
+
+		this.event = new FlightRecorderEvents.Write();
+		this.event.begin();
+		this.event.imageIndex = imageIndex;
+
 		clearAbortRequest();
 
-		processImageStarted(0);
+		processImageStarted(imageIndex);
+
+		this.rowIndexInterval = param instanceof QOIImageWriteParam ? ((QOIImageWriteParam) param).getRowIndexInterval() : 0;
+		this.stripeCount = param instanceof QOIImageWriteParam ? ((QOIImageWriteParam) param).getStripeCount() : 0;
+
+		if (this.rowIndexInterval > 0 && this.stripeCount > 0) {
+			throw new IllegalArgumentException("Row index can't be written for striped images");
+		}
 
 		RenderedImage rendered = image.getRenderedImage();
 
+		// Without metadata, the header describes the image as is
+		QOIMetadata metadata = image.getMetadata() != null ?
+				convertImageMetadata(image.getMetadata(), 0, getColorSpace(rendered.getColorModel())) :
+				null;
+
+		this.channels = metadata != null ? metadata.getChannels() : 0;
+		this.colorSpace = metadata != null ? metadata.getColorSpace() : getColorSpace(rendered.getColorModel());
+
 		// Fast path
 		if (param == null || ImageParamUtil.isDefault(param)) {
-			writeImage(createFromRenderedImage(rendered));
+			writeRenderedImage(rendered);
 
 			return;
 		}
@@ -82,9 +252,9 @@ public final class QOIImageWriter extends ImageWriter {
 		int width = sourceRegion.width;
 		int height = sourceRegion.height;
 
-		Raster raster = rendered.getData(sourceRegion);
+		int numBands = rendered.getSampleModel().getNumBands();
 
-		int bandCount = sourceBands == null ? raster.getNumBands() : sourceBands.length;
+		int bandCount = sourceBands == null ? numBands : sourceBands.length;
 
 		if (bandCount != 3 && bandCount != 4) {
 			throw new IllegalArgumentException("Band count not supported");
@@ -92,286 +262,743 @@ public final class QOIImageWriter extends ImageWriter {
 
 		if (sourceBands != null) {
 			for (int sourceBand : sourceBands) {
-				if (sourceBand >= raster.getNumBands()) {
+				if (sourceBand >= numBands) {
 					throw new IllegalArgumentException("Invalid band");
 				}
 			}
 		}
 
-		raster = raster.createChild(
-				sourceRegion.x,
-				sourceRegion.y,
-				width,
-				height,
-				0,
-				0,
-				sourceBands
-		);
+		Rectangle region = sourceRegion;
+
+		int sourceX = sourceRegion.x;
+		int sourceY = sourceRegion.y;
+		int sourceWidth = width;
 
 		width = (width + sourceXSubsampling - 1) / sourceXSubsampling;
 		height = (height + sourceYSubsampling - 1) / sourceYSubsampling;
 
-		byte[] pixels = new byte[width * height * bandCount];
+		int rowLength = width * bandCount;
 
-		int[] pixel = new int[bandCount];
+		boolean timed = isConversionTimed();
+
+		this.path = QOIConversionPath.RASTER;
+
+		writeRows(width, height, bandCount, buffers -> {
+			IntFunction<Raster> strips = getStrips(rendered, region);
+
+			int[] samples = buffers.getInts(sourceWidth * bandCount);
+
+			byte[] row = buffers.getBytes(rowLength);
+
+			// Last strip and its child with source bands, created once per strip rather than per row
+			Raster[] children = new Raster[2];
+
+			return (y, encoder) -> {
+				long conversionStart = timed ? System.nanoTime() : 0;
+
+				int rowY = sourceY + y * sourceYSubsampling;
+
+				Raster strip = strips.apply(rowY);
+
+				if (children[0] != strip) {
+					children[0] = strip;
+					children[1] = strip.createChild(strip.getMinX(), strip.getMinY(), strip.getWidth(), strip.getHeight(), strip.getMinX(), strip.getMinY(), sourceBands);
+				}
 
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
 				// todo should we here convert the pixel using the ColorModel?
-				raster.getPixel(x * sourceXSubsampling, y * sourceYSubsampling, pixel);
+				children[1].getPixels(sourceX, rowY, sourceWidth, 1, samples);
 
-				int i = (y * width + x) * bandCount;
+				for (int x = 0, i = 0; x < rowLength; x += bandCount, i += sourceXSubsampling * bandCount) {
+					row[x] = (byte) samples[i];
+					row[x + 1] = (byte) samples[i + 1];
+					row[x + 2] = (byte) samples[i + 2];
 
-				pixels[i] = (byte) pixel[0];
-				pixels[i + 1] = (byte) pixel[1];
-				pixels[i + 2] = (byte) pixel[2];
+					if (bandCount == 4) {
+						row[x + 3] = (byte) samples[i + 3];
+					}
+				}
 
-				if (bandCount == 4) {
-					pixels[i + 3] = (byte) pixel[3];
+				if (timed) {
+					this.conversionNanos += System.nanoTime() - conversionStart;
 				}
+
+				encoder.encodeRow(row, 0);
+			};
+		});
+	}
+
+	private void writeRenderedImage(@NonNull RenderedImage image) throws IOException {
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		QOIConversionPath path = getWritePath(image);
+
+		this.path = path;
+
+		if (path == QOIConversionPath.TILED) {
+			int channels = getChannels(image.getColorModel());
+
+			writeConvertedRows(width, height, channels, () -> createTiledConverter(image, channels));
+
+			return;
+		}
+
+		BufferedImage buffered = (BufferedImage) image;
+
+		Raster raster = buffered.getRaster();
+
+		if (path == QOIConversionPath.DIRECT) {
+			int channels = getDirectlyEncodableChannels(raster, buffered.getColorModel());
+
+			byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+
+			writeRows(width, height, channels, buffers -> (y, encoder) -> encoder.encodeRow(data, RasterUtil.getRowOffset(raster, y)));
+
+			return;
+		}
+
+		int channels = getChannels(buffered.getColorModel());
+
+		if (path == QOIConversionPath.PACKED_INT) {
+			int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+
+			if (buffered.getType() == BufferedImage.TYPE_INT_BGR) {
+				writeRows(width, height, channels, buffers -> (y, encoder) -> encoder.encodeBgrRow(data, RasterUtil.getRowOffset(raster, y)));
+			} else {
+				writeRows(width, height, channels, buffers -> (y, encoder) -> encoder.encodeArgbRow(data, RasterUtil.getRowOffset(raster, y)));
 			}
 
+			return;
+		}
+
+		// Converters of buffered images are thread-safe, so stripes can share one
+		RowConverter converter = createRowConverter(buffered, channels);
+
+		writeConvertedRows(width, height, channels, () -> converter);
+	}
+
+	private void writeConvertedRows(int width, int height, int channels, @NonNull Supplier<RowConverter> converters) throws IOException {
+		writeRows(width, height, channels, buffers -> {
+			RowConverter converter = converters.get();
+
+			byte[] row = buffers.getBytes(width * channels);
+
+			boolean timed = isConversionTimed();
+
+			return (y, encoder) -> {
+				if (timed) {
+					long conversionStart = System.nanoTime();
+
+					converter.convertRow(y, row, 0);
+
+					this.conversionNanos += System.nanoTime() - conversionStart;
+				} else {
+					converter.convertRow(y, row, 0);
+				}
+
+				encoder.encodeRow(row, 0);
+			};
+		});
+	}
+
+	private void writeRows(int width, int height, int channels, @NonNull RowSourceFactory sources) throws IOException {
+		OutputStream stream = openOutputStream();
+
+		boolean completed = this.stripeCount > 0 ?
+				writeStripes(stream, width, height, channels, sources) :
+				writeImage(stream, width, height, channels, sources.create(this.buffers));
+
+		stream.flush();
+
+		if (!completed) {
+			// Data encoded so far is still passed to the output
+			processWriteAborted();
+
+			return;
+		}
+
+		if (this.output instanceof ImageOutputStream) {
+			((ImageOutputStream) this.output).flush();
+		}
+
+		this.statistics = new QOIEncoderStatistics((long) width * height, this.chunkCounts);
+
+		// All streams opened by openOutputStream are metered
+		reportWrite((MeteredStream) stream, width, height, channels);
+
+		processImageComplete();
+	}
+
+	// Reports a completely written image to the metrics listener and Flight Recorder
+	private void reportWrite(@NonNull MeteredStream stream, int width, int height, int channels) {
+		if (this.metricsListener != null) {
+			long ioNanos = stream.getIONanos();
+			long encodeNanos = System.nanoTime() - this.startNanos - ioNanos - this.conversionNanos;
+
+			this.metricsListener.imageWritten((long) width * height, stream.getByteCount(), this.path, ioNanos, encodeNanos, this.conversionNanos);
+		}
+
+		FlightRecorderEvents.Write event = this.event;
+
+		this.event = null;
+
+		if (event.shouldCommit()) {
+			event.width = width;
+			event.height = height;
+			event.channels = getHeaderChannels(channels);
+			event.bytes = stream.getByteCount();
+			event.stripes = this.stripeCount;
+			event.path = this.path.name();
+			event.commit();
+		}
+	}
+
+	// Stripes are converted by several threads, which would race on the counter
+	private boolean isConversionTimed() {
+		return this.metricsListener != null && this.stripeCount == 0;
+	}
+
+	// Returns false if writing was aborted
+	private boolean writeImage(@NonNull OutputStream stream, int width, int height, int channels, @NonNull RowSource source) throws IOException {
+		QOIStreamEncoder encoder = new QOIStreamEncoder(stream, width, height, channels, getHeaderChannels(channels), this.colorSpace);
+
+		encoder.writeHeader();
+
+		QOIRowIndex.Builder indexBuilder = this.rowIndexInterval > 0 ? new QOIRowIndex.Builder(this.rowIndexInterval) : null;
+
+		encoder.setIndexBuilder(indexBuilder);
+
+		for (int y = 0; y < height; y++) {
+			source.encodeRow(y, encoder);
+
 			processImageProgress(y * 100F / height);
 
 			if (abortRequested()) {
-				processWriteAborted();
+				return false;
+			}
+		}
+
+		encoder.finish();
+		encoder.addChunkCounts(this.chunkCounts);
+
+		if (indexBuilder != null) {
+			// Appended after the end marker, where QOI decoders don't look
+			indexBuilder.build(width, height, encoder.getDataSize()).write(stream);
+		}
+
+		return true;
+	}
+
+	// Stripes are encoded into memory in parallel, then written in order. Returns false if writing was aborted
+	private boolean writeStripes(@NonNull OutputStream stream, int width, int height, int channels, @NonNull RowSourceFactory sources) throws IOException {
+		int stripeHeight = StripedImage.getStripeHeight(height, this.stripeCount);
+		int count = StripedImage.getStripeCount(height, stripeHeight);
+
+		UnsyncByteArrayOutputStream[] stripes = new UnsyncByteArrayOutputStream[count];
+		long[][] stripeChunkCounts = new long[count][this.chunkCounts.length];
+
+		QOIBufferPool pool = this.buffers.getPool();
+
+		int headerChannels = getHeaderChannels(channels);
+		QOIColorSpace colorSpace = this.colorSpace;
 
-				return;
+		ParallelConversion.forEachStripe(count, stripe -> {
+			int firstRow = stripe * stripeHeight;
+			int rowCount = Math.min(stripeHeight, height - firstRow);
+
+			ScratchBuffers buffers = new ScratchBuffers();
+			buffers.setPool(pool);
+
+			try {
+				RowSource source = sources.create(buffers);
+
+				UnsyncByteArrayOutputStream out = new UnsyncByteArrayOutputStream();
+
+				QOIStreamEncoder encoder = new QOIStreamEncoder(out, width, rowCount, channels, headerChannels, colorSpace);
+
+				encoder.writeHeader();
+
+				for (int y = firstRow; y < firstRow + rowCount; y++) {
+					source.encodeRow(y, encoder);
+				}
+
+				encoder.finish();
+				encoder.addChunkCounts(stripeChunkCounts[stripe]);
+
+				stripes[stripe] = out;
+			} finally {
+				buffers.release();
+			}
+		});
+
+		long[] sizes = new long[count];
+
+		for (int stripe = 0; stripe < count; stripe++) {
+			sizes[stripe] = stripes[stripe].size();
+
+			for (int i = 0; i < this.chunkCounts.length; i++) {
+				this.chunkCounts[i] += stripeChunkCounts[stripe][i];
+			}
+		}
+
+		StripedImage.writeHeader(stream, width, height, headerChannels, colorSpace, sizes);
+
+		for (int stripe = 0; stripe < count; stripe++) {
+			stripes[stripe].writeTo(stream);
+			stripes[stripe] = null;
+
+			processImageProgress((stripe + 1) * 100F / count);
+
+			if (abortRequested()) {
+				return false;
 			}
 		}
 
-		writeImage(QOIUtil.createFromPixelData(pixels, width, height, bandCount));
+		return true;
 	}
 
-	private void writeImage(@NonNull QOIImage converted) throws IOException {
-		ImageOutputStream output = (ImageOutputStream) this.output;
+	// Returns channel count written to the header for rows with the specified channel count
+	private int getHeaderChannels(int rowChannels) {
+		return this.channels != 0 ? this.channels : rowChannels;
+	}
 
-		QOIUtil.writeImage(converted, new WrappedImageOutputStream(output));
+	// Returns null if the metadata can't be converted; fields missing from it are set to the specified values
+	private static QOIMetadata convertImageMetadata(@NonNull IIOMetadata inData, int channels, @NonNull QOIColorSpace colorSpace) {
+		if (inData instanceof QOIMetadata) {
+			QOIMetadata metadata = (QOIMetadata) inData;
 
-		output.flush();
+			return new QOIMetadata(metadata.getWidth(), metadata.getHeight(), metadata.getChannels(), metadata.getColorSpace());
+		}
 
-		processImageComplete();
+		QOIMetadata metadata = new QOIMetadata(0, 0, channels, colorSpace);
+
+		try {
+			if (QOIMetadata.NATIVE_FORMAT_NAME.equals(inData.getNativeMetadataFormatName())) {
+				metadata.mergeTree(QOIMetadata.NATIVE_FORMAT_NAME, inData.getAsTree(QOIMetadata.NATIVE_FORMAT_NAME));
+			} else if (inData.isStandardMetadataFormatSupported()) {
+				metadata.mergeTree(IIOMetadataFormatImpl.standardMetadataFormatName, inData.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName));
+			} else {
+				return null;
+			}
+		} catch (IIOInvalidTreeException e) {
+			return null;
+		}
+
+		return metadata;
+	}
+
+	// Encoded bytes are written to channels and buffers directly, without ImageOutputStream caching
+	private OutputStream openOutputStream() throws IOException {
+		if (this.output == null) {
+			throw new IllegalStateException("Output not set");
+		}
+
+		if (this.output instanceof ImageOutputStream) {
+			return new WrappedImageOutputStream((ImageOutputStream) this.output);
+		}
+
+		if (this.output instanceof WritableByteChannel) {
+			return new ChannelOutputStream((WritableByteChannel) this.output);
+		}
+
+		if (this.output instanceof ByteBuffer) {
+			return new ChannelOutputStream(ChannelOutputStream.toChannel((ByteBuffer) this.output));
+		}
+
+		throw new IllegalStateException("Unsupported output type " + this.output.getClass().getName());
+	}
+
+	/**
+	 * Returns the maximum size of an encoded QOI image with the specified dimensions, which can be used to allocate an output buffer.
+	 * @param channels Channel count of the image, 3 or 4.
+	 */
+	public static long getMaxEncodedSize(int width, int height, int channels) {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Invalid image dimensions " + width + " x " + height);
+		}
+
+		if (channels != 3 && channels != 4) {
+			throw new IllegalArgumentException("Invalid channel count " + channels);
+		}
+
+		// Header, a tag byte for each pixel followed by all channels, and the end marker
+		return QOIHeader.SIZE + (long) width * height * (channels + 1) + 8;
 	}
 
 	public static QOIImage createFromRenderedImage(@NonNull RenderedImage image) {
+		FlightRecorderEvents.Conversion event = new FlightRecorderEvents.Conversion();
+		event.begin();
+
+		QOIConversionPath path = getPixelDataPath(image);
+
+		QOIImage result = path == QOIConversionPath.TILED ?
+				createFromTiledImage(image) :
+				createFromBufferedImage((BufferedImage) image, path);
+
+		if (event.shouldCommit()) {
+			event.width = result.getWidth();
+			event.height = result.getHeight();
+			event.channels = result.getChannels();
+			event.path = path.name();
+			event.commit();
+		}
+
+		return result;
+	}
+
+	private static QOIImage createFromTiledImage(@NonNull RenderedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int channels = getChannels(image.getColorModel());
+
+		// Tiles are read in order, so rows are converted on the calling thread
+		byte[] pixelData = convert(width, height, channels, createTiledConverter(image, channels));
+
+		return QOIUtil.createFromPixelData(pixelData, width, height, channels, QOIColorSpace.SRGB);
+	}
+
+	// Raster of a BufferedImage can be used without copying, other images are read one row of tiles at a time
+	private static IntFunction<Raster> getStrips(@NonNull RenderedImage image, @NonNull Rectangle region) {
 		if (image instanceof BufferedImage) {
-			return createFromBufferedImage((BufferedImage) image);
+			Raster raster = ((BufferedImage) image).getRaster();
+
+			return y -> raster;
 		}
 
-		return createFromRaster(image.getData(), image.getColorModel());
+		return new TileRowReader(image, region)::getStrip;
 	}
 
-	private static QOIImage createFromBufferedImage(@NonNull BufferedImage image) {
+	private static QOIImage createFromBufferedImage(@NonNull BufferedImage image, @NonNull QOIConversionPath path) {
 		int width = image.getWidth();
 		int height = image.getHeight();
 
 		// Try use data buffer directly, if possible
-		{
-			WritableRaster raster = image.getRaster();
-
-			if (raster.getClass().getName().equals("sun.awt.image.ByteInterleavedRaster") &&
-					raster.getMinX() == 0 &&
-					raster.getMinY() == 0 &&
-					raster.getWidth() == width &&
-					raster.getHeight() == height) {
-				ColorModel colorModel = image.getColorModel();
-
-				if (!colorModel.isAlphaPremultiplied()) {
-					byte[] buffer = ((DataBufferByte) raster.getDataBuffer()).getData();
-
-					SampleModel model = raster.getSampleModel();
-
-					if (model instanceof PixelInterleavedSampleModel &&
-							model.getTransferType() == DataBuffer.TYPE_BYTE &&
-							model.getWidth() == width &&
-							model.getHeight() == height &&
-							model.getNumBands() == 3 &&
-							((PixelInterleavedSampleModel) model).getPixelStride() == 3 &&
-							((PixelInterleavedSampleModel) model).getScanlineStride() == 3 * width &&
-							Arrays.equals(((PixelInterleavedSampleModel) model).getBandOffsets(), QOIImageReader.OFFSETS_3) &&
-							buffer.length == width * height * 3) {
-						return QOIUtil.createFromPixelData(buffer, width, height, 3);
-					}
-
-					if (model instanceof PixelInterleavedSampleModel &&
-							model.getTransferType() == DataBuffer.TYPE_BYTE &&
-							model.getWidth() == width &&
-							model.getHeight() == height &&
-							model.getNumBands() == 4 &&
-							((PixelInterleavedSampleModel) model).getPixelStride() == 4 &&
-							((PixelInterleavedSampleModel) model).getScanlineStride() == 4 * width &&
-							Arrays.equals(((PixelInterleavedSampleModel) model).getBandOffsets(), QOIImageReader.OFFSETS_4) &&
-							buffer.length == width * height * 4) {
-						return QOIUtil.createFromPixelData(buffer, width, height, 4);
-					}
-				}
-			}
+		if (path == QOIConversionPath.DIRECT) {
+			return QOIUtil.createFromPixelData(((DataBufferByte) image.getRaster().getDataBuffer()).getData(), width, height, getPixelDataChannels(image));
 		}
 
-		int channels = image.getTransparency() != Transparency.OPAQUE ? 4 : 3;
+		int channels = getChannels(image.getColorModel());
 
 		byte[] pixelData = new byte[width * height * channels];
 
+		// Converters of BufferedImage rows are independent, so large images are converted in parallel
+		ParallelConversion.convert(width, height, channels, createRowConverter(image, channels), pixelData);
+
+		return QOIUtil.createFromPixelData(pixelData, width, height, channels, QOIColorSpace.SRGB);
+	}
+
+	/**
+	 * Returns the way pixels of the image are converted by {@link #write} with default parameters.
+	 * Writing dispatches on the returned path, so it is the path actually taken.
+	 */
+	static QOIConversionPath getWritePath(@NonNull RenderedImage image) {
+		if (!(image instanceof BufferedImage)) {
+			return QOIConversionPath.TILED;
+		}
+
+		BufferedImage buffered = (BufferedImage) image;
+
+		if (getDirectlyEncodableChannels(buffered.getRaster(), buffered.getColorModel()) != 0) {
+			return QOIConversionPath.DIRECT;
+		}
+
+		switch (buffered.getType()) {
+			case BufferedImage.TYPE_INT_ARGB:
+			case BufferedImage.TYPE_INT_RGB:
+			case BufferedImage.TYPE_INT_BGR:
+				return QOIConversionPath.PACKED_INT;
+			default:
+				return getConverterPath(buffered);
+		}
+	}
+
+	/**
+	 * Returns the way pixels of the image are converted by {@link #createFromRenderedImage}, which dispatches on it.
+	 */
+	static QOIConversionPath getPixelDataPath(@NonNull RenderedImage image) {
+		if (!(image instanceof BufferedImage)) {
+			return QOIConversionPath.TILED;
+		}
+
+		BufferedImage buffered = (BufferedImage) image;
+
+		return getPixelDataChannels(buffered) != 0 ? QOIConversionPath.DIRECT : getConverterPath(buffered);
+	}
+
+	// Decides which converter createRowConverter returns
+	private static QOIConversionPath getConverterPath(@NonNull BufferedImage image) {
 		switch (image.getType()) {
-			case BufferedImage.TYPE_INT_ARGB: {
-				assert channels == 4;
+			case BufferedImage.TYPE_INT_ARGB:
+			case BufferedImage.TYPE_INT_RGB:
+			case BufferedImage.TYPE_INT_BGR:
+			case BufferedImage.TYPE_3BYTE_BGR:
+			case BufferedImage.TYPE_4BYTE_ABGR:
+			case BufferedImage.TYPE_BYTE_GRAY:
+				return QOIConversionPath.TYPE_SPECIFIC;
+			default:
+				return QOIConversionPath.COLOR_MODEL;
+		}
+	}
 
-				Raster raster = image.getRaster();
+	// Returns channel count if the whole data buffer is RGB or RGBA pixel data that can be used without copying, or 0 otherwise
+	private static int getPixelDataChannels(@NonNull BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
 
-				DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+		WritableRaster raster = image.getRaster();
 
-				int[] data = buffer.getData();
+		if (!raster.getClass().getName().equals("sun.awt.image.ByteInterleavedRaster") ||
+				raster.getMinX() != 0 ||
+				raster.getMinY() != 0 ||
+				raster.getWidth() != width ||
+				raster.getHeight() != height ||
+				image.getColorModel().isAlphaPremultiplied()) {
+			return 0;
+		}
 
-				int total = width * height * 4;
+		byte[] buffer = ((DataBufferByte) raster.getDataBuffer()).getData();
 
-				for (int i = 0, j = buffer.getOffset(); i < total; i += 4, j++) {
-					int pixel = data[j];
+		SampleModel model = raster.getSampleModel();
 
-					pixelData[i] = (byte) (pixel >> 16);
-					pixelData[i + 1] = (byte) (pixel >> 8);
-					pixelData[i + 2] = (byte) pixel;
-					pixelData[i + 3] = (byte) (pixel >> 24);
-				}
+		if (model instanceof PixelInterleavedSampleModel &&
+				model.getTransferType() == DataBuffer.TYPE_BYTE &&
+				model.getWidth() == width &&
+				model.getHeight() == height &&
+				model.getNumBands() == 3 &&
+				((PixelInterleavedSampleModel) model).getPixelStride() == 3 &&
+				((PixelInterleavedSampleModel) model).getScanlineStride() == 3 * width &&
+				Arrays.equals(((PixelInterleavedSampleModel) model).getBandOffsets(), QOIImageReader.OFFSETS_3) &&
+				buffer.length == width * height * 3) {
+			return 3;
+		}
 
-				break;
-			}
-			case BufferedImage.TYPE_INT_RGB: {
-				assert channels == 3;
+		if (model instanceof PixelInterleavedSampleModel &&
+				model.getTransferType() == DataBuffer.TYPE_BYTE &&
+				model.getWidth() == width &&
+				model.getHeight() == height &&
+				model.getNumBands() == 4 &&
+				((PixelInterleavedSampleModel) model).getPixelStride() == 4 &&
+				((PixelInterleavedSampleModel) model).getScanlineStride() == 4 * width &&
+				Arrays.equals(((PixelInterleavedSampleModel) model).getBandOffsets(), QOIImageReader.OFFSETS_4) &&
+				buffer.length == width * height * 4) {
+			return 4;
+		}
 
-				Raster raster = image.getRaster();
+		return 0;
+	}
 
-				DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+	private static byte[] convert(int width, int height, int channels, @NonNull RowConverter converter) {
+		byte[] pixelData = new byte[width * height * channels];
 
-				int[] data = buffer.getData();
+		for (int y = 0; y < height; y++) {
+			converter.convertRow(y, pixelData, y * width * channels);
+		}
 
-				int total = width * height * 3;
+		return pixelData;
+	}
 
-				for (int i = 0, j = buffer.getOffset(); i < total; i += 3, j++) {
-					int pixel = data[j];
+	private static int getChannels(@NonNull ColorModel colorModel) {
+		return colorModel.getTransparency() != Transparency.OPAQUE ? 4 : 3;
+	}
 
-					pixelData[i] = (byte) (pixel >> 16);
-					pixelData[i + 1] = (byte) (pixel >> 8);
-					pixelData[i + 2] = (byte) pixel;
-				}
+	// Pixel values are not converted between color spaces, so anything but linear RGB is written as sRGB
+	private static QOIColorSpace getColorSpace(ColorModel colorModel) {
+		return colorModel != null && colorModel.getColorSpace() == ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB) ? QOIColorSpace.LINEAR : QOIColorSpace.SRGB;
+	}
 
-				break;
-			}
-			case BufferedImage.TYPE_INT_BGR: {
-				assert channels == 3;
+	// Returns channel count if raster data already is in RGB or RGBA layout, or 0 otherwise
+	private static int getDirectlyEncodableChannels(@NonNull Raster raster, @NonNull ColorModel colorModel) {
+		SampleModel model = raster.getSampleModel();
 
-				Raster raster = image.getRaster();
+		if (colorModel.isAlphaPremultiplied() ||
+				!(model instanceof PixelInterleavedSampleModel) ||
+				!(raster.getDataBuffer() instanceof DataBufferByte) ||
+				raster.getDataBuffer().getNumBanks() != 1) {
+			return 0;
+		}
 
-				DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+		int channels = model.getNumBands();
 
-				int[] data = buffer.getData();
+		PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) model;
 
-				int total = width * height * 3;
+		if (channels == 3 &&
+				interleaved.getPixelStride() == 3 &&
+				Arrays.equals(interleaved.getBandOffsets(), QOIImageReader.OFFSETS_3)) {
+			return 3;
+		}
 
-				for (int i = 0, j = buffer.getOffset(); i < total; i += 3, j++) {
-					int pixel = data[j];
+		if (channels == 4 &&
+				interleaved.getPixelStride() == 4 &&
+				Arrays.equals(interleaved.getBandOffsets(), QOIImageReader.OFFSETS_4)) {
+			return 4;
+		}
 
-					pixelData[i] = (byte) pixel;
-					pixelData[i + 1] = (byte) (pixel >> 8);
-					pixelData[i + 2] = (byte) (pixel >> 16);
-				}
+		return 0;
+	}
 
-				break;
-			}
-			case BufferedImage.TYPE_3BYTE_BGR: {
-				assert channels == 3;
+	static RowConverter createRowConverter(@NonNull BufferedImage image, int channels) {
+		int width = image.getWidth();
 
-				Raster raster = image.getRaster();
+		Raster raster = image.getRaster();
 
-				DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+		// Dispatching on the path keeps reported paths in line with converters actually used
+		if (getConverterPath(image) == QOIConversionPath.COLOR_MODEL) {
+			return createRasterConverter(raster, image.getColorModel(), channels);
+		}
 
-				byte[] data = buffer.getData();
+		switch (image.getType()) {
+			case BufferedImage.TYPE_INT_ARGB: {
+				assert channels == 4;
 
-				int total = width * height * 3;
+				int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
 
-				for (int i = 0, j = buffer.getOffset(); i < total; i += 3, j += 3) {
-					pixelData[i] = data[j + 2];
-					pixelData[i + 1] = data[j + 1];
-					pixelData[i + 2] = data[j];
-				}
+				return (y, dest, offset) -> {
+					for (int i = offset, j = RasterUtil.getRowOffset(raster, y), end = offset + width * 4; i < end; i += 4, j++) {
+						int pixel = data[j];
 
-				break;
+						dest[i] = (byte) (pixel >> 16);
+						dest[i + 1] = (byte) (pixel >> 8);
+						dest[i + 2] = (byte) pixel;
+						dest[i + 3] = (byte) (pixel >> 24);
+					}
+				};
 			}
-			case BufferedImage.TYPE_4BYTE_ABGR: {
-				assert channels == 4;
+			case BufferedImage.TYPE_INT_RGB: {
+				assert channels == 3;
 
-				Raster raster = image.getRaster();
+				int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
 
-				DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+				return (y, dest, offset) -> {
+					for (int i = offset, j = RasterUtil.getRowOffset(raster, y), end = offset + width * 3; i < end; i += 3, j++) {
+						int pixel = data[j];
 
-				byte[] data = buffer.getData();
+						dest[i] = (byte) (pixel >> 16);
+						dest[i + 1] = (byte) (pixel >> 8);
+						dest[i + 2] = (byte) pixel;
+					}
+				};
+			}
+			case BufferedImage.TYPE_INT_BGR: {
+				assert channels == 3;
 
-				int total = width * height * 4;
+				int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
 
-				for (int i = 0, j = buffer.getOffset(); i < total; i += 4, j += 4) {
-					pixelData[i] = data[j + 3];
-					pixelData[i + 1] = data[j + 2];
-					pixelData[i + 2] = data[j + 1];
-					pixelData[i + 3] = data[j];
-				}
+				return (y, dest, offset) -> {
+					for (int i = offset, j = RasterUtil.getRowOffset(raster, y), end = offset + width * 3; i < end; i += 3, j++) {
+						int pixel = data[j];
 
-				break;
+						dest[i] = (byte) pixel;
+						dest[i + 1] = (byte) (pixel >> 8);
+						dest[i + 2] = (byte) (pixel >> 16);
+					}
+				};
 			}
-			case BufferedImage.TYPE_BYTE_GRAY: {
+			case BufferedImage.TYPE_3BYTE_BGR: {
 				assert channels == 3;
 
-				Raster raster = image.getRaster();
+				byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
 
-				DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+				return (y, dest, offset) -> {
+					for (int i = offset, j = RasterUtil.getRowOffset(raster, y), end = offset + width * 3; i < end; i += 3, j += 3) {
+						dest[i] = data[j + 2];
+						dest[i + 1] = data[j + 1];
+						dest[i + 2] = data[j];
+					}
+				};
+			}
+			case BufferedImage.TYPE_4BYTE_ABGR: {
+				assert channels == 4;
 
-				byte[] data = buffer.getData();
+				byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
 
-				int total = width * height * 3;
+				return (y, dest, offset) -> {
+					for (int i = offset, j = RasterUtil.getRowOffset(raster, y), end = offset + width * 4; i < end; i += 4, j += 4) {
+						dest[i] = data[j + 3];
+						dest[i + 1] = data[j + 2];
+						dest[i + 2] = data[j + 1];
+						dest[i + 3] = data[j];
+					}
+				};
+			}
+			case BufferedImage.TYPE_BYTE_GRAY: {
+				assert channels == 3;
 
-				for (int i = 0, j = buffer.getOffset(); i < total; i += 3, j++) {
-					byte value = data[j];
-					pixelData[i] = value;
-					pixelData[i + 1] = value;
-					pixelData[i + 2] = value;
-				}
+				byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
 
-				break;
+				return (y, dest, offset) -> {
+					for (int i = offset, j = RasterUtil.getRowOffset(raster, y), end = offset + width * 3; i < end; i += 3, j++) {
+						byte value = data[j];
+						dest[i] = value;
+						dest[i + 1] = value;
+						dest[i + 2] = value;
+					}
+				};
 			}
 			default:
-				return createFromRaster(image.getRaster(), image.getColorModel());
+				throw new IllegalStateException("No type-specific converter for image type " + image.getType());
 		}
-
-		return QOIUtil.createFromPixelData(pixelData, width, height, channels, QOIColorSpace.SRGB);
 	}
 
-	// Slowest method
-	private static QOIImage createFromRaster(@NonNull Raster raster, @NonNull ColorModel colorModel) {
+	// Slowest conversion; rows may be converted concurrently, so the data element array is reused only within a row
+	private static RowConverter createRasterConverter(@NonNull Raster raster, @NonNull ColorModel colorModel, int channels) {
 		int width = raster.getWidth();
-		int height = raster.getHeight();
-		int channels = colorModel.getTransparency() != Transparency.OPAQUE ? 4 : 3;
+		int minX = raster.getMinX();
+		int minY = raster.getMinY();
 
-		byte[] pixelData = new byte[width * height * channels];
+		return (y, dest, offset) -> convertRow(raster, minX, minY + y, width, colorModel, channels, new Object[1], dest, offset);
+	}
 
-		Object pixel = null;
+	private static RowConverter createTiledConverter(@NonNull RenderedImage image, int channels) {
+		int width = image.getWidth();
+		int minX = image.getMinX();
+		int minY = image.getMinY();
 
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				pixel = raster.getDataElements(x, y, pixel);
+		ColorModel colorModel = image.getColorModel();
 
-				int rgb = colorModel.getRGB(pixel);
+		TileRowReader reader = new TileRowReader(image, new Rectangle(minX, minY, width, image.getHeight()));
 
-				int i = (y * width + x) * channels;
+		Object[] pixel = new Object[1];
 
-				pixelData[i] = (byte) (rgb >> 16);
-				pixelData[i + 1] = (byte) (rgb >> 8);
-				pixelData[i + 2] = (byte) rgb;
+		return (y, dest, offset) -> convertRow(reader.getStrip(minY + y), minX, minY + y, width, colorModel, channels, pixel, dest, offset);
+	}
 
-				if (channels == 4) {
-					pixelData[i + 3] = (byte) (rgb >> 24);
-				}
+	// Converts a row using the ColorModel; pixel is a holder of a reused data element array
+	private static void convertRow(@NonNull Raster raster,
+	                               int minX,
+	                               int y,
+	                               int width,
+	                               @NonNull ColorModel colorModel,
+	                               int channels,
+	                               @NonNull Object[] pixel,
+	                               byte @NonNull [] dest,
+	                               int offset) {
+		for (int x = 0, i = offset; x < width; x++, i += channels) {
+			pixel[0] = raster.getDataElements(minX + x, y, pixel[0]);
+
+			int rgb = colorModel.getRGB(pixel[0]);
+
+			dest[i] = (byte) (rgb >> 16);
+			dest[i + 1] = (byte) (rgb >> 8);
+			dest[i + 2] = (byte) rgb;
+
+			if (channels == 4) {
+				dest[i + 3] = (byte) (rgb >> 24);
 			}
 		}
+	}
+
+	@FunctionalInterface
+	private interface RowSource {
+
+		void encodeRow(int y, @NonNull QOIStreamEncoder encoder) throws IOException;
+
+	}
+
+	// Stripes may be encoded in parallel, so each one gets its own source and scratch buffers
+	private interface RowSourceFactory {
+
+		RowSource create(@NonNull ScratchBuffers buffers);
 
-		return QOIUtil.createFromPixelData(pixelData, width, height, channels, QOIColorSpace.SRGB);
 	}
 
 }
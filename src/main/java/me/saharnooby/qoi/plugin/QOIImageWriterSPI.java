@@ -19,16 +19,16 @@ public final class QOIImageWriterSPI extends ImageWriterSpi {
 				WRITER_CLASS_NAME,
 				OUTPUT_TYPES,
 				new String[] {READER_SPI_CLASS_NAME},
-				// Standard stream metadata is not supported
+				// QOI has no stream metadata
 				false,
 				null,
 				null,
 				null,
 				null,
-				// Standard image metadata is not supported
-				false,
-				null,
-				null,
+				// Image metadata sets channels and color space written to the header
+				true,
+				QOIMetadata.NATIVE_FORMAT_NAME,
+				METADATA_FORMAT_CLASS_NAME,
 				null,
 				null
 		);
@@ -0,0 +1,268 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+import lombok.NonNull;
+import me.saharnooby.qoi.QOIColorSpace;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.metadata.IIOMetadataNode;
+
+/**
+ * Image metadata of QOI images, which is the content of the header. Returned by {@link QOIImageReader#getImageMetadata}
+ * without decoding pixel data, and accepted by {@link QOIImageWriter} to choose channel count and color space of the output.
+ * <p>
+ * Both the native format {@value #NATIVE_FORMAT_NAME}, described by {@link QOIMetadataFormat}, and the standard
+ * {@value IIOMetadataFormatImpl#standardMetadataFormatName} format are supported.
+ */
+public final class QOIMetadata extends IIOMetadata {
+
+	public static final String NATIVE_FORMAT_NAME = "me_saharnooby_qoi_1.0";
+
+	static final String HEADER_NODE_NAME = "QOIHeader";
+
+	private static final String SRGB = "sRGB";
+	private static final String LINEAR = "linear";
+
+	// Dimensions are 0 in metadata created by the writer, they are taken from the image when writing
+	@Getter
+	private int width;
+	@Getter
+	private int height;
+	@Getter
+	private int channels;
+	@Getter
+	@NonNull
+	private QOIColorSpace colorSpace;
+
+	private final int initialChannels;
+	@NonNull
+	private final QOIColorSpace initialColorSpace;
+
+	QOIMetadata(int width, int height, int channels, @NonNull QOIColorSpace colorSpace) {
+		super(true, NATIVE_FORMAT_NAME, QOIMetadataFormat.class.getName(), null, null);
+
+		this.width = width;
+		this.height = height;
+		this.channels = channels;
+		this.colorSpace = colorSpace;
+		this.initialChannels = channels;
+		this.initialColorSpace = colorSpace;
+	}
+
+	static QOIMetadata fromHeader(@NonNull QOIHeader header) {
+		return new QOIMetadata(header.getWidth(), header.getHeight(), header.getChannels(), header.getColorSpace());
+	}
+
+	/**
+	 * @param channels Channel count of the written image, 3 or 4. Alpha is dropped when writing 3 channels,
+	 *                 and is set to 255 when writing 4 channels of an opaque image.
+	 */
+	public void setChannels(int channels) {
+		if (channels != 3 && channels != 4) {
+			throw new IllegalArgumentException("Invalid channel count " + channels);
+		}
+
+		this.channels = channels;
+	}
+
+	/**
+	 * @param colorSpace Color space written to the header; pixel values are not converted.
+	 */
+	public void setColorSpace(@NonNull QOIColorSpace colorSpace) {
+		this.colorSpace = colorSpace;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	@Override
+	public Node getAsTree(@NonNull String formatName) {
+		if (formatName.equals(NATIVE_FORMAT_NAME)) {
+			return getNativeTree();
+		}
+
+		if (formatName.equals(IIOMetadataFormatImpl.standardMetadataFormatName)) {
+			return getStandardTree();
+		}
+
+		throw new IllegalArgumentException("Unsupported metadata format " + formatName);
+	}
+
+	@Override
+	public void mergeTree(@NonNull String formatName, @NonNull Node root) throws IIOInvalidTreeException {
+		if (!root.getNodeName().equals(formatName)) {
+			throw new IIOInvalidTreeException("Root node must be " + formatName, root);
+		}
+
+		if (formatName.equals(NATIVE_FORMAT_NAME)) {
+			mergeNativeTree(root);
+		} else if (formatName.equals(IIOMetadataFormatImpl.standardMetadataFormatName)) {
+			mergeStandardTree(root);
+		} else {
+			throw new IllegalArgumentException("Unsupported metadata format " + formatName);
+		}
+	}
+
+	@Override
+	public void reset() {
+		this.channels = this.initialChannels;
+		this.colorSpace = this.initialColorSpace;
+	}
+
+	private Node getNativeTree() {
+		IIOMetadataNode header = new IIOMetadataNode(HEADER_NODE_NAME);
+		header.setAttribute("width", String.valueOf(this.width));
+		header.setAttribute("height", String.valueOf(this.height));
+		header.setAttribute("channels", String.valueOf(this.channels));
+		header.setAttribute("colorSpace", this.colorSpace == QOIColorSpace.SRGB ? SRGB : LINEAR);
+
+		IIOMetadataNode root = new IIOMetadataNode(NATIVE_FORMAT_NAME);
+		root.appendChild(header);
+
+		return root;
+	}
+
+	// Dimensions are ignored, they are taken from the image when writing
+	private void mergeNativeTree(@NonNull Node root) throws IIOInvalidTreeException {
+		for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (!node.getNodeName().equals(HEADER_NODE_NAME)) {
+				throw new IIOInvalidTreeException("Unknown node " + node.getNodeName(), node);
+			}
+
+			String channels = getAttribute(node, "channels");
+
+			if (channels != null) {
+				if (!channels.equals("3") && !channels.equals("4")) {
+					throw new IIOInvalidTreeException("Invalid channel count " + channels, node);
+				}
+
+				this.channels = Integer.parseInt(channels);
+			}
+
+			String colorSpace = getAttribute(node, "colorSpace");
+
+			if (colorSpace != null) {
+				if (!colorSpace.equals(SRGB) && !colorSpace.equals(LINEAR)) {
+					throw new IIOInvalidTreeException("Invalid color space " + colorSpace, node);
+				}
+
+				this.colorSpace = colorSpace.equals(SRGB) ? QOIColorSpace.SRGB : QOIColorSpace.LINEAR;
+			}
+		}
+	}
+
+	// Only nodes that map to header fields are used, the rest is ignored as other plugins do
+	private void mergeStandardTree(@NonNull Node root) throws IIOInvalidTreeException {
+		for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+				String value = getAttribute(child, "value");
+
+				if (value == null) {
+					continue;
+				}
+
+				switch (node.getNodeName() + '/' + child.getNodeName()) {
+					case "Chroma/Gamma":
+						try {
+							this.colorSpace = Float.parseFloat(value) == 1F ? QOIColorSpace.LINEAR : QOIColorSpace.SRGB;
+						} catch (NumberFormatException e) {
+							throw new IIOInvalidTreeException("Invalid gamma " + value, child);
+						}
+
+						break;
+					case "Transparency/Alpha":
+						this.channels = value.equals("none") ? 3 : 4;
+
+						break;
+				}
+			}
+		}
+	}
+
+	@Override
+	protected IIOMetadataNode getStandardChromaNode() {
+		IIOMetadataNode colorSpaceType = new IIOMetadataNode("ColorSpaceType");
+		colorSpaceType.setAttribute("name", "RGB");
+
+		IIOMetadataNode numChannels = new IIOMetadataNode("NumChannels");
+		numChannels.setAttribute("value", String.valueOf(this.channels));
+
+		IIOMetadataNode chroma = new IIOMetadataNode("Chroma");
+		chroma.appendChild(colorSpaceType);
+		chroma.appendChild(numChannels);
+
+		// QOI does not specify the gamma of sRGB images, so it is only set for linear ones
+		if (this.colorSpace == QOIColorSpace.LINEAR) {
+			IIOMetadataNode gamma = new IIOMetadataNode("Gamma");
+			gamma.setAttribute("value", "1.0");
+
+			chroma.appendChild(gamma);
+		}
+
+		return chroma;
+	}
+
+	@Override
+	protected IIOMetadataNode getStandardCompressionNode() {
+		IIOMetadataNode typeName = new IIOMetadataNode("CompressionTypeName");
+		typeName.setAttribute("value", "QOI");
+
+		IIOMetadataNode lossless = new IIOMetadataNode("Lossless");
+		lossless.setAttribute("value", "TRUE");
+
+		IIOMetadataNode compression = new IIOMetadataNode("Compression");
+		compression.appendChild(typeName);
+		compression.appendChild(lossless);
+
+		return compression;
+	}
+
+	@Override
+	protected IIOMetadataNode getStandardDataNode() {
+		IIOMetadataNode planarConfiguration = new IIOMetadataNode("PlanarConfiguration");
+		planarConfiguration.setAttribute("value", "PixelInterleaved");
+
+		IIOMetadataNode sampleFormat = new IIOMetadataNode("SampleFormat");
+		sampleFormat.setAttribute("value", "UnsignedIntegral");
+
+		IIOMetadataNode bitsPerSample = new IIOMetadataNode("BitsPerSample");
+		bitsPerSample.setAttribute("value", this.channels == 4 ? "8 8 8 8" : "8 8 8");
+
+		IIOMetadataNode data = new IIOMetadataNode("Data");
+		data.appendChild(planarConfiguration);
+		data.appendChild(sampleFormat);
+		data.appendChild(bitsPerSample);
+
+		return data;
+	}
+
+	@Override
+	protected IIOMetadataNode getStandardTransparencyNode() {
+		IIOMetadataNode alpha = new IIOMetadataNode("Alpha");
+		alpha.setAttribute("value", this.channels == 4 ? "nonpremultipled" : "none");
+
+		IIOMetadataNode transparency = new IIOMetadataNode("Transparency");
+		transparency.appendChild(alpha);
+
+		return transparency;
+	}
+
+	private static String getAttribute(@NonNull Node node, @NonNull String name) {
+		NamedNodeMap attributes = node.getAttributes();
+
+		if (attributes == null) {
+			return null;
+		}
+
+		Node attribute = attributes.getNamedItem(name);
+
+		return attribute != null ? attribute.getNodeValue() : null;
+	}
+
+}
@@ -0,0 +1,39 @@
+package me.saharnooby.qoi.plugin;
+
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadataFormat;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import java.util.Arrays;
+
+/**
+ * Describes the native format of {@link QOIMetadata}: a single {@code QOIHeader} element with header fields as attributes.
+ */
+public final class QOIMetadataFormat extends IIOMetadataFormatImpl {
+
+	private static final QOIMetadataFormat INSTANCE = new QOIMetadataFormat();
+
+	private QOIMetadataFormat() {
+		super(QOIMetadata.NATIVE_FORMAT_NAME, CHILD_POLICY_SOME);
+
+		String header = QOIMetadata.HEADER_NODE_NAME;
+
+		addElement(header, QOIMetadata.NATIVE_FORMAT_NAME, CHILD_POLICY_EMPTY);
+		addAttribute(header, "width", DATATYPE_INTEGER, true, null, "0", String.valueOf(Integer.MAX_VALUE), true, true);
+		addAttribute(header, "height", DATATYPE_INTEGER, true, null, "0", String.valueOf(Integer.MAX_VALUE), true, true);
+		addAttribute(header, "channels", DATATYPE_INTEGER, true, null, Arrays.asList("3", "4"));
+		addAttribute(header, "colorSpace", DATATYPE_STRING, true, null, Arrays.asList("sRGB", "linear"));
+	}
+
+	@Override
+	public boolean canNodeAppear(String elementName, ImageTypeSpecifier imageType) {
+		return true;
+	}
+
+	/**
+	 * Called by {@link javax.imageio.spi.ImageReaderWriterSpi#getImageMetadataFormat}.
+	 */
+	public static IIOMetadataFormat getInstance() {
+		return INSTANCE;
+	}
+
+}
@@ -0,0 +1,111 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sums metrics reported by any number of readers and writers into counters that can be polled by a monitoring exporter.
+ * Counters are updated without locking and can be read at any time; they are not reset by reading.
+ */
+public final class QOIMetricsCollector implements QOIMetricsListener {
+
+	@Getter
+	private final Counters reads = new Counters();
+	@Getter
+	private final Counters writes = new Counters();
+
+	@Override
+	public void imageRead(long pixels, long bytes, @NonNull QOIConversionPath path, long ioNanos, long decodeNanos, long conversionNanos) {
+		this.reads.add(pixels, bytes, path, ioNanos, decodeNanos, conversionNanos);
+	}
+
+	@Override
+	public void imageWritten(long pixels, long bytes, @NonNull QOIConversionPath path, long ioNanos, long encodeNanos, long conversionNanos) {
+		this.writes.add(pixels, bytes, path, ioNanos, encodeNanos, conversionNanos);
+	}
+
+	/**
+	 * Totals of images read or written. Codec time is decoding time for reads and encoding time for writes.
+	 */
+	public static final class Counters {
+
+		private static final QOIConversionPath[] PATHS = QOIConversionPath.values();
+
+		private final LongAdder images = new LongAdder();
+		private final LongAdder pixels = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final LongAdder ioNanos = new LongAdder();
+		private final LongAdder codecNanos = new LongAdder();
+		private final LongAdder conversionNanos = new LongAdder();
+
+		// Image counts by conversion path, indexed by ordinal
+		private final LongAdder[] paths = new LongAdder[PATHS.length];
+
+		private Counters() {
+			for (int i = 0; i < this.paths.length; i++) {
+				this.paths[i] = new LongAdder();
+			}
+		}
+
+		private void add(long pixels, long bytes, @NonNull QOIConversionPath path, long ioNanos, long codecNanos, long conversionNanos) {
+			this.images.increment();
+			this.pixels.add(pixels);
+			this.bytes.add(bytes);
+			this.ioNanos.add(ioNanos);
+			this.codecNanos.add(codecNanos);
+			this.conversionNanos.add(conversionNanos);
+			this.paths[path.ordinal()].increment();
+		}
+
+		public long getImages() {
+			return this.images.sum();
+		}
+
+		public long getPixels() {
+			return this.pixels.sum();
+		}
+
+		public long getBytes() {
+			return this.bytes.sum();
+		}
+
+		public long getIONanos() {
+			return this.ioNanos.sum();
+		}
+
+		public long getCodecNanos() {
+			return this.codecNanos.sum();
+		}
+
+		public long getConversionNanos() {
+			return this.conversionNanos.sum();
+		}
+
+		/**
+		 * Returns count of images that were converted using the specified path.
+		 */
+		public long getImages(@NonNull QOIConversionPath path) {
+			return this.paths[path.ordinal()].sum();
+		}
+
+		/**
+		 * Sets all counters to zero. Counts reported concurrently with resetting may be lost.
+		 */
+		public void reset() {
+			this.images.reset();
+			this.pixels.reset();
+			this.bytes.reset();
+			this.ioNanos.reset();
+			this.codecNanos.reset();
+			this.conversionNanos.reset();
+
+			for (LongAdder path : this.paths) {
+				path.reset();
+			}
+		}
+
+	}
+
+}
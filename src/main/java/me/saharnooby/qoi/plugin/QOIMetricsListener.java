@@ -0,0 +1,39 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+/**
+ * Receives metrics of images read by {@link QOIImageReader} and written by {@link QOIImageWriter}.
+ * Methods are called on the thread that read or wrote the image after it was processed completely; aborted and failed
+ * reads and writes are not reported. Arguments are primitives, so no objects are allocated for a call,
+ * and implementations that only update counters, like {@link QOIMetricsCollector}, add no garbage.
+ * <p>
+ * Time of a call is split into stages that don't overlap:
+ * <ul>
+ *     <li>I/O: block reads and writes of encoded data to the underlying stream, channel or buffer.
+ *     Byte arrays, byte buffers and memory-mapped files are decoded in place and have no I/O time;</li>
+ *     <li>codec: everything else, mostly decoding or encoding chunks;</li>
+ *     <li>conversion: moving pixels between the image and RGB(A) rows where that is a separate step. Images that are encoded
+ *     or decoded in parallel have it counted as codec time, since time spent by several threads does not add up.</li>
+ * </ul>
+ */
+public interface QOIMetricsListener {
+
+	/**
+	 * Called after an image was read.
+	 * @param pixels Count of pixels stored into the destination image.
+	 * @param bytes Count of encoded bytes from the start of the image to the last byte decoded from it,
+	 *              or 0 if previously decoded pixels were reused.
+	 * @param path How decoded pixels were stored into the destination image.
+	 */
+	void imageRead(long pixels, long bytes, @NonNull QOIConversionPath path, long ioNanos, long decodeNanos, long conversionNanos);
+
+	/**
+	 * Called after an image was written.
+	 * @param pixels Count of pixels encoded.
+	 * @param bytes Count of bytes written to the output, including the header and the row index.
+	 * @param path How pixels of the source image were converted into RGB(A) rows.
+	 */
+	void imageWritten(long pixels, long bytes, @NonNull QOIConversionPath path, long ioNanos, long encodeNanos, long conversionNanos);
+
+}
@@ -0,0 +1,33 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+
+/**
+ * Kinds of QOI chunks, see {@link QOIEncoderStatistics}.
+ */
+public enum QOIOpcode {
+
+	// Repeats the previous pixel 1 to 62 times
+	RUN(1),
+	// Pixel from the array of recently seen pixels
+	INDEX(1),
+	// Small difference from the previous pixel, 2 bits per channel
+	DIFF(1),
+	// Difference from the previous pixel relative to the green channel
+	LUMA(2),
+	// Full RGB value with alpha of the previous pixel
+	RGB(4),
+	// Full RGBA value
+	RGBA(5);
+
+	/**
+	 * Size of a chunk in bytes, including the tag.
+	 */
+	@Getter
+	private final int chunkSize;
+
+	QOIOpcode(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+}
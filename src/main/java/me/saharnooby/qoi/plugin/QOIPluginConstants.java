@@ -2,6 +2,11 @@ package me.saharnooby.qoi.plugin;
 
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 
 final class QOIPluginConstants {
 
@@ -11,8 +16,10 @@ final class QOIPluginConstants {
 	static final String[] SUFFIXES = {"qoi"};
 	static final String[] MIME_TYPES = new String[0];
 
-	static final Class<?>[] INPUT_TYPES = {ImageInputStream.class};
-	static final Class<?>[] OUTPUT_TYPES = {ImageOutputStream.class};
+	// Files and buffers are read directly, without ImageIO stream and cache machinery
+	static final Class<?>[] INPUT_TYPES = {ImageInputStream.class, File.class, Path.class, ByteBuffer.class, byte[].class, InputStream.class};
+	// Channels and buffers are written directly, without ImageOutputStream caching
+	static final Class<?>[] OUTPUT_TYPES = {ImageOutputStream.class, WritableByteChannel.class, ByteBuffer.class};
 
 	static final String READER_CLASS_NAME = "me.saharnooby.qoi.plugin.QOIImageReader";
 	static final String WRITER_CLASS_NAME = "me.saharnooby.qoi.plugin.QOIImageWriter";
@@ -20,4 +27,6 @@ final class QOIPluginConstants {
 	static final String READER_SPI_CLASS_NAME = "me.saharnooby.qoi.plugin.QOIImageReaderSPI";
 	static final String WRITER_SPI_CLASS_NAME = "me.saharnooby.qoi.plugin.QOIImageWriterSPI";
 
+	static final String METADATA_FORMAT_CLASS_NAME = "me.saharnooby.qoi.plugin.QOIMetadataFormat";
+
 }
@@ -0,0 +1,394 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.imageio.IIOException;
+import javax.imageio.stream.ImageInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decoder state saved every few rows of a QOI image. Rows below a checkpoint can be decoded without
+ * decoding rows above it, and stripes of rows between checkpoints can be decoded in parallel.
+ * <p>
+ * An index is stored as a block that can be appended right after the end marker of the image, where QOI decoders
+ * don't look, or kept in a separate file. {@link QOIImageReader} finds blocks appended to images by itself,
+ * see {@link QOIImageWriteParam#setRowIndexInterval} and {@link QOIImageReader#setRowIndex}.
+ * <p>
+ * Block layout, all numbers are big-endian:
+ * <pre>
+ * "qoix"    magic
+ * u32       block size, including both magic values and size fields
+ * u32 u32   image width and height
+ * u64       size of chunks and the end marker of the image
+ * u32       interval in rows
+ * u32       checkpoint count, checkpoint k is taken at the start of row (k + 1) * interval
+ * checkpoints:
+ *   u64     offset of the first chunk not fully above the row, relative to the end of the header
+ *   u32     previous pixel as ARGB
+ *   u32     pixels of that chunk that belong to rows above
+ *   u32[64] index array as ARGB
+ * u32       block size
+ * "qoix"    magic
+ * </pre>
+ */
+public final class QOIRowIndex {
+
+	private static final byte[] MAGIC = {'q', 'o', 'i', 'x'};
+
+	private static final int HEAD_SIZE = 8;
+	private static final int FIXED_SIZE = HEAD_SIZE + 4 + 4 + 8 + 4 + 4 + 4 + 4;
+	private static final int CHECKPOINT_SIZE = 8 + 4 + 4 + 64 * 4;
+
+	// Checkpoint arrays are allocated for at most this many checkpoints before they are read
+	private static final int INITIAL_CAPACITY = 1024;
+
+	@Getter
+	private final int width;
+	@Getter
+	private final int height;
+	@Getter
+	private final int interval;
+
+	private final long dataSize;
+
+	private final long[] offsets;
+	private final int[] pixels;
+	private final int[] skips;
+	private final int[][] indices;
+
+	private QOIRowIndex(int width, int height, int interval, long dataSize, long @NonNull [] offsets, int @NonNull [] pixels, int @NonNull [] skips, int @NonNull [] @NonNull [] indices) {
+		this.width = width;
+		this.height = height;
+		this.interval = interval;
+		this.dataSize = dataSize;
+		this.offsets = offsets;
+		this.pixels = pixels;
+		this.skips = skips;
+		this.indices = indices;
+	}
+
+	/**
+	 * Builds an index for the first image of the input by decoding it once.
+	 * @param input Any input accepted by {@link QOIImageReader}; an {@link ImageInputStream} is left positioned right after the image.
+	 * @param interval Number of rows between checkpoints.
+	 */
+	public static QOIRowIndex build(@NonNull Object input, int interval) throws IOException {
+		Builder builder = new Builder(interval);
+
+		ImageInputStream stream = InputUtil.open(input);
+
+		QOIHeader header = QOIHeader.read(stream);
+
+		if (header.isStriped()) {
+			throw new IIOException("Striped images can't be indexed");
+		}
+
+		try (InputStream in = InputUtil.openStream(stream)) {
+			QOIStreamDecoder decoder = new QOIStreamDecoder(in, header);
+
+			decoder.setIndexBuilder(builder);
+			decoder.skipRows(header.getHeight());
+			decoder.readEndMarker();
+
+			return builder.build(header.getWidth(), header.getHeight(), decoder.getConsumedBytes());
+		}
+	}
+
+	/**
+	 * Reads a block written by {@link #write}.
+	 */
+	public static QOIRowIndex read(@NonNull InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+
+		byte[] magic = new byte[MAGIC.length];
+
+		data.readFully(magic);
+
+		if (!isMagic(magic, 0)) {
+			throw new IIOException("Invalid magic value, probably not a QOI row index");
+		}
+
+		int size = data.readInt();
+		int width = data.readInt();
+		int height = data.readInt();
+		long dataSize = data.readLong();
+		int interval = data.readInt();
+		int count = data.readInt();
+
+		if (width < 1 || height < 1 || interval < 1 || dataSize < 8 || count != getCheckpointCount(height, interval) || size != getSize(count)) {
+			throw new IIOException("Invalid QOI row index");
+		}
+
+		// Arrays grow as checkpoints are read, so a block cut short does not allocate them for the whole count
+		int capacity = Math.min(count, INITIAL_CAPACITY);
+
+		long[] offsets = new long[capacity];
+		int[] pixels = new int[capacity];
+		int[] skips = new int[capacity];
+		int[][] indices = new int[capacity][];
+
+		for (int k = 0; k < count; k++) {
+			if (k == capacity) {
+				capacity = (int) Math.min(count, capacity * 2L);
+
+				offsets = Arrays.copyOf(offsets, capacity);
+				pixels = Arrays.copyOf(pixels, capacity);
+				skips = Arrays.copyOf(skips, capacity);
+				indices = Arrays.copyOf(indices, capacity);
+			}
+
+			indices[k] = new int[64];
+
+			offsets[k] = data.readLong();
+			pixels[k] = data.readInt();
+			skips[k] = data.readInt();
+
+			for (int i = 0; i < 64; i++) {
+				indices[k][i] = data.readInt();
+			}
+
+			if (offsets[k] < 0 || offsets[k] >= dataSize || skips[k] < 0 || skips[k] > 61) {
+				throw new IIOException("Invalid QOI row index checkpoint " + k);
+			}
+		}
+
+		if (data.readInt() != size) {
+			throw new IIOException("Invalid QOI row index");
+		}
+
+		data.readFully(magic);
+
+		if (!isMagic(magic, 0)) {
+			throw new IIOException("Invalid QOI row index");
+		}
+
+		return new QOIRowIndex(width, height, interval, dataSize, offsets, pixels, skips, indices);
+	}
+
+	/**
+	 * Reads a block starting at the specified offset, or returns {@code null} if there is no block there.
+	 */
+	static QOIRowIndex read(@NonNull ImageInputStream input, long offset) throws IOException {
+		input.seek(offset);
+
+		byte[] head = new byte[HEAD_SIZE];
+
+		try {
+			input.readFully(head);
+		} catch (EOFException e) {
+			return null;
+		}
+
+		int size = getSize(head);
+
+		if (size < FIXED_SIZE) {
+			return null;
+		}
+
+		long length = input.length();
+
+		// Checkpoints are allocated by read(InputStream) only after fields of the block are checked against its size
+		if (length >= 0 && offset + size > length) {
+			throw new IIOException("QOI row index does not fit into the input");
+		}
+
+		input.seek(offset);
+
+		try (InputStream in = InputUtil.openStream(input)) {
+			return read(in);
+		} catch (EOFException e) {
+			throw new IIOException("QOI row index does not fit into the input", e);
+		}
+	}
+
+	/**
+	 * Returns size of the block starting with the specified 8 bytes, or -1 if they don't start a block.
+	 */
+	static int getSize(byte @NonNull [] head) {
+		return isMagic(head, 0) ? readInt(head, 4) : -1;
+	}
+
+	/**
+	 * Returns size of the block ending with the specified 8 bytes, or -1 if they don't end a block.
+	 */
+	static int getSizeFromFooter(byte @NonNull [] footer) {
+		return isMagic(footer, 4) ? readInt(footer, 0) : -1;
+	}
+
+	/**
+	 * Writes the index as a block, which can be appended to the image or stored separately.
+	 */
+	public void write(@NonNull OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+
+		int count = getCheckpointCount();
+		int size = (int) getSize(count);
+
+		data.write(MAGIC);
+		data.writeInt(size);
+		data.writeInt(this.width);
+		data.writeInt(this.height);
+		data.writeLong(this.dataSize);
+		data.writeInt(this.interval);
+		data.writeInt(count);
+
+		for (int k = 0; k < count; k++) {
+			data.writeLong(this.offsets[k]);
+			data.writeInt(this.pixels[k]);
+			data.writeInt(this.skips[k]);
+
+			for (int value : this.indices[k]) {
+				data.writeInt(value);
+			}
+		}
+
+		data.writeInt(size);
+		data.write(MAGIC);
+
+		data.flush();
+	}
+
+	public int getCheckpointCount() {
+		return this.offsets.length;
+	}
+
+	/**
+	 * @return Size of the block written by {@link #write} in bytes.
+	 */
+	public int getSize() {
+		return (int) getSize(getCheckpointCount());
+	}
+
+	boolean matches(@NonNull QOIHeader header) {
+		return this.width == header.getWidth() && this.height == header.getHeight();
+	}
+
+	long getDataSize() {
+		return this.dataSize;
+	}
+
+	/**
+	 * Returns the last checkpoint at or above the specified row, or -1 if there is none.
+	 */
+	int findCheckpoint(int row) {
+		return Math.min(row / this.interval, getCheckpointCount()) - 1;
+	}
+
+	int getRow(int checkpoint) {
+		return (checkpoint + 1) * this.interval;
+	}
+
+	long getOffset(int checkpoint) {
+		return this.offsets[checkpoint];
+	}
+
+	int getPixel(int checkpoint) {
+		return this.pixels[checkpoint];
+	}
+
+	int getSkip(int checkpoint) {
+		return this.skips[checkpoint];
+	}
+
+	int[] getIndex(int checkpoint) {
+		return this.indices[checkpoint];
+	}
+
+	private static int getCheckpointCount(int height, int interval) {
+		return (height - 1) / interval;
+	}
+
+	private static long getSize(int count) {
+		return FIXED_SIZE + (long) count * CHECKPOINT_SIZE;
+	}
+
+	private static boolean isMagic(byte @NonNull [] b, int offset) {
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (b[offset + i] != MAGIC[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int readInt(byte @NonNull [] b, int offset) {
+		return ((b[offset] & 0xFF) << 24) |
+				((b[offset + 1] & 0xFF) << 16) |
+				((b[offset + 2] & 0xFF) << 8) |
+				(b[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * Collects checkpoints from an encoder or a decoder as rows are processed.
+	 */
+	static final class Builder {
+
+		@Getter
+		private final int interval;
+
+		private final List<Long> offsets = new ArrayList<>();
+		private final List<Integer> pixels = new ArrayList<>();
+		private final List<Integer> skips = new ArrayList<>();
+		private final List<int[]> indices = new ArrayList<>();
+
+		Builder(int interval) {
+			if (interval < 1) {
+				throw new IllegalArgumentException("Invalid row index interval " + interval);
+			}
+
+			this.interval = interval;
+		}
+
+		/**
+		 * Adds the checkpoint for the next row that is a multiple of the interval.
+		 * @param offset Offset of the first chunk not fully above the row.
+		 * @param pixel Pixel preceding that chunk.
+		 * @param skip Pixels of that chunk that belong to rows above.
+		 * @param index Index array, copied.
+		 */
+		void add(long offset, int pixel, int skip, int @NonNull [] index) {
+			this.offsets.add(offset);
+			this.pixels.add(pixel);
+			this.skips.add(skip);
+			this.indices.add(index.clone());
+		}
+
+		QOIRowIndex build(int width, int height, long dataSize) {
+			int count = getCheckpointCount(height, this.interval);
+
+			if (this.offsets.size() != count) {
+				throw new IllegalStateException("Expected " + count + " checkpoints, got " + this.offsets.size());
+			}
+
+			if (getSize(count) > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Row index interval " + this.interval + " is too small for height " + height);
+			}
+
+			long[] offsets = new long[count];
+			int[] pixels = new int[count];
+			int[] skips = new int[count];
+
+			for (int k = 0; k < count; k++) {
+				offsets[k] = this.offsets.get(k);
+				pixels[k] = this.pixels.get(k);
+				skips[k] = this.skips.get(k);
+			}
+
+			int[][] indices = this.indices.toArray(new int[0][]);
+
+			return new QOIRowIndex(width, height, this.interval, dataSize, offsets, pixels, skips, indices);
+		}
+
+	}
+
+}
@@ -0,0 +1,431 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes QOI chunks row by row, so pixels can be consumed without keeping the
+ * whole decoded image in memory. The stream must be positioned right after the header.
+ * The stream is read in blocks, but never past the end marker of the image.
+ */
+final class QOIStreamDecoder {
+
+	static final int OP_INDEX = 0x00;
+	static final int OP_DIFF = 0x40;
+	static final int OP_LUMA = 0x80;
+	static final int OP_RUN = 0xC0;
+	static final int OP_RGB = 0xFE;
+	static final int OP_RGBA = 0xFF;
+
+	static final int MASK_2 = 0xC0;
+
+	// Shifts of R, G, B and A components in an ARGB pixel, in band order
+	private static final int[] BAND_SHIFTS = {16, 8, 0, 24};
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private final InputStream input;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+
+	// Bytes read from the stream, including ones still in the buffer
+	private long bytesRead;
+
+	// Pixels not covered by chunks read so far, and bytes of the end marker not read yet; these bound read-ahead
+	private long pixelsLeft;
+	private int markerBytesLeft = 8;
+
+	private final int width;
+	private final int height;
+	private final int channels;
+
+	// Pixels are stored as ARGB
+	private final int[] index = new int[64];
+
+	private int pixel = 0xFF000000;
+
+	private int run;
+
+	// Pixel count of the last run chunk
+	private int runLength;
+
+	private int row;
+
+	// Receives checkpoints when a row index is being built
+	private QOIRowIndex.Builder indexBuilder;
+
+	QOIStreamDecoder(@NonNull InputStream input, @NonNull QOIHeader header) {
+		this.input = input;
+		this.width = header.getWidth();
+		this.height = header.getHeight();
+		this.channels = header.getChannels();
+		this.pixelsLeft = (long) this.width * this.height;
+	}
+
+	/**
+	 * Restores decoder state saved at a checkpoint, so decoding continues from its row.
+	 * Must be called before anything is decoded, with the stream positioned at the offset of the checkpoint.
+	 */
+	void restore(@NonNull QOIRowIndex rowIndex, int checkpoint) throws IOException {
+		if (this.row != 0 || this.bytesRead != 0) {
+			throw new IllegalStateException("Decoding has already started");
+		}
+
+		int skip = rowIndex.getSkip(checkpoint);
+
+		this.row = rowIndex.getRow(checkpoint);
+		this.pixel = rowIndex.getPixel(checkpoint);
+		this.pixelsLeft = (long) (this.height - this.row) * this.width + skip;
+
+		System.arraycopy(rowIndex.getIndex(checkpoint), 0, this.index, 0, this.index.length);
+
+		// The chunk at the offset may start with pixels of rows above
+		skipPixels(skip);
+	}
+
+	/**
+	 * Makes the decoder add a checkpoint to the builder at the start of each row that is a multiple of its interval.
+	 */
+	void setIndexBuilder(QOIRowIndex.Builder indexBuilder) {
+		this.indexBuilder = indexBuilder;
+	}
+
+	/**
+	 * @return Number of bytes consumed from the stream so far.
+	 */
+	long getConsumedBytes() {
+		return this.bytesRead - (this.limit - this.position);
+	}
+
+	/**
+	 * @return Index of the row that will be decoded next.
+	 */
+	int getRow() {
+		return this.row;
+	}
+
+	/**
+	 * Decodes the next row like {@link #readRow(int[], int[], int, int, int)}, but stores each kept pixel
+	 * as RGB or RGBA bytes starting at {@code dest[offset]}, depending on channel count of the image.
+	 */
+	void readRow(byte @NonNull [] dest, int offset, int firstX, int step, int count) throws IOException {
+		startRow();
+
+		int channels = this.channels;
+
+		int x = 0;
+
+		for (int k = 0, i = offset; k < count; k++, i += channels) {
+			int targetX = firstX + k * step;
+
+			skipPixels(targetX - x);
+
+			int pixel = nextPixel();
+
+			x = targetX + 1;
+
+			dest[i] = (byte) (pixel >> 16);
+			dest[i + 1] = (byte) (pixel >> 8);
+			dest[i + 2] = (byte) pixel;
+
+			if (channels == 4) {
+				dest[i + 3] = (byte) (pixel >> 24);
+			}
+		}
+
+		skipPixels(this.width - x);
+
+		this.row++;
+	}
+
+	/**
+	 * Decodes the next row, storing only every {@code step}-th pixel starting from {@code firstX}.
+	 * For each stored pixel, samples of the specified bands (0 to 3 for R, G, B, A) are written.
+	 * Remaining pixels are decoded only to advance decoder state.
+	 */
+	void readRow(int @NonNull [] dest, int @NonNull [] bands, int firstX, int step, int count) throws IOException {
+		startRow();
+
+		int x = 0;
+
+		for (int k = 0, i = 0; k < count; k++) {
+			int targetX = firstX + k * step;
+
+			skipPixels(targetX - x);
+
+			int pixel = nextPixel();
+
+			x = targetX + 1;
+
+			for (int band : bands) {
+				dest[i++] = (pixel >>> BAND_SHIFTS[band]) & 0xFF;
+			}
+		}
+
+		skipPixels(this.width - x);
+
+		this.row++;
+	}
+
+	/**
+	 * Decodes the next row like {@link #readRow(int[], int[], int, int, int)}, but stores each kept pixel
+	 * as a single ARGB int at {@code dest[offset + k]}, with color components premultiplied by alpha if requested.
+	 */
+	void readPackedRow(int @NonNull [] dest, int offset, int firstX, int step, int count, boolean premultiply) throws IOException {
+		startRow();
+
+		int x = 0;
+
+		for (int k = 0; k < count; k++) {
+			int targetX = firstX + k * step;
+
+			skipPixels(targetX - x);
+
+			int pixel = nextPixel();
+
+			x = targetX + 1;
+
+			dest[offset + k] = premultiply ? premultiply(pixel) : pixel;
+		}
+
+		skipPixels(this.width - x);
+
+		this.row++;
+	}
+
+	/**
+	 * Decodes the next row without storing its pixels; decoder state is still updated.
+	 */
+	void skipRow() throws IOException {
+		startRow();
+
+		skipPixels(this.width);
+
+		this.row++;
+	}
+
+	void skipRows(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			skipRow();
+		}
+	}
+
+	/**
+	 * Consumes the end marker, leaving the stream positioned right after the image. All rows must be decoded or skipped first.
+	 */
+	void readEndMarker() throws IOException {
+		if (this.row < this.height) {
+			throw new IllegalStateException("Not all rows were decoded");
+		}
+
+		while (this.markerBytesLeft > 0) {
+			read();
+
+			this.markerBytesLeft--;
+		}
+	}
+
+	private void startRow() {
+		if (this.row >= this.height) {
+			throw new IllegalStateException("All rows were already decoded");
+		}
+
+		QOIRowIndex.Builder builder = this.indexBuilder;
+
+		if (builder != null && this.row > 0 && this.row % builder.getInterval() == 0) {
+			if (this.run > 0) {
+				// The checkpoint points to the run chunk, which is decoded again and partially skipped
+				builder.add(getConsumedBytes() - 1, this.pixel, this.runLength - this.run, this.index);
+			} else {
+				builder.add(getConsumedBytes(), this.pixel, 0, this.index);
+			}
+		}
+	}
+
+	private void skipPixels(int count) throws IOException {
+		while (count > 0) {
+			if (this.run > 0) {
+				// Runs do not change decoder state, so they are skipped at once
+				int skipped = Math.min(this.run, count);
+
+				this.run -= skipped;
+
+				count -= skipped;
+			} else {
+				nextPixel();
+
+				count--;
+			}
+		}
+	}
+
+	private int nextPixel() throws IOException {
+		if (this.run > 0) {
+			this.run--;
+
+			return this.pixel;
+		}
+
+		int pixel = this.pixel;
+
+		int b1 = read();
+
+		if (b1 == OP_RGB) {
+			pixel = (pixel & 0xFF000000) | (read() << 16) | (read() << 8) | read();
+		} else if (b1 == OP_RGBA) {
+			int r = read();
+			int g = read();
+			int b = read();
+			int a = read();
+
+			pixel = (a << 24) | (r << 16) | (g << 8) | b;
+		} else {
+			switch (b1 & MASK_2) {
+				case OP_INDEX:
+					pixel = this.index[b1];
+					break;
+				case OP_DIFF: {
+					int r = ((pixel >> 16) + ((b1 >> 4) & 0x03) - 2) & 0xFF;
+					int g = ((pixel >> 8) + ((b1 >> 2) & 0x03) - 2) & 0xFF;
+					int b = (pixel + (b1 & 0x03) - 2) & 0xFF;
+
+					pixel = (pixel & 0xFF000000) | (r << 16) | (g << 8) | b;
+
+					break;
+				}
+				case OP_LUMA: {
+					int b2 = read();
+
+					int vg = (b1 & 0x3F) - 32;
+
+					int r = ((pixel >> 16) + vg - 8 + ((b2 >> 4) & 0x0F)) & 0xFF;
+					int g = ((pixel >> 8) + vg) & 0xFF;
+					int b = (pixel + vg - 8 + (b2 & 0x0F)) & 0xFF;
+
+					pixel = (pixel & 0xFF000000) | (r << 16) | (g << 8) | b;
+
+					break;
+				}
+				default:
+					// OP_RUN, the current pixel is its first one
+					this.run = b1 & 0x3F;
+					this.runLength = this.run + 1;
+
+					this.pixelsLeft -= this.run;
+			}
+		}
+
+		this.pixelsLeft--;
+
+		this.index[hash(pixel)] = pixel;
+		this.pixel = pixel;
+
+		return pixel;
+	}
+
+	private int read() throws IOException {
+		if (this.position == this.limit) {
+			fill();
+		}
+
+		return this.buffer[this.position++] & 0xFF;
+	}
+
+	private void fill() throws IOException {
+		// Each remaining chunk takes at least one byte and covers at most 62 pixels, and the current chunk
+		// may need one more byte; reading no more than that guarantees the stream is not read past the image
+		long minRemaining = this.pixelsLeft > 0 ?
+				Math.max(1, (this.pixelsLeft - 1 + 61) / 62) + 8 :
+				Math.max(1, this.markerBytesLeft);
+
+		int length = (int) Math.min(BUFFER_SIZE, minRemaining);
+
+		int count;
+
+		do {
+			count = this.input.read(this.buffer, 0, length);
+		} while (count == 0);
+
+		if (count < 0) {
+			throw new EOFException("Unexpected end of QOI stream");
+		}
+
+		this.position = 0;
+		this.limit = count;
+
+		this.bytesRead += count;
+	}
+
+	/**
+	 * Skips chunks and the end marker of an image without decoding pixels.
+	 * The stream must be positioned right after the header.
+	 */
+	static void skipImage(@NonNull InputStream input, @NonNull QOIHeader header) throws IOException {
+		long remaining = (long) header.getWidth() * header.getHeight();
+
+		while (remaining > 0) {
+			int b1 = read(input);
+
+			if (b1 == OP_RGB) {
+				skip(input, 3);
+			} else if (b1 == OP_RGBA) {
+				skip(input, 4);
+			} else if ((b1 & MASK_2) == OP_LUMA) {
+				skip(input, 1);
+			} else if ((b1 & MASK_2) == OP_RUN) {
+				remaining -= b1 & 0x3F;
+			}
+
+			remaining--;
+		}
+
+		// End marker
+		skip(input, 8);
+	}
+
+	private static void skip(@NonNull InputStream input, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			read(input);
+		}
+	}
+
+	private static int read(@NonNull InputStream input) throws IOException {
+		int b = input.read();
+
+		if (b < 0) {
+			throw new EOFException("Unexpected end of QOI stream");
+		}
+
+		return b;
+	}
+
+	// Same rounding as in DirectColorModel.coerceData
+	private static int premultiply(int argb) {
+		int a = argb >>> 24;
+
+		if (a == 0xFF) {
+			return argb;
+		}
+
+		float alpha = a / 255F;
+
+		int r = (int) (((argb >> 16) & 0xFF) * alpha + 0.5F);
+		int g = (int) (((argb >> 8) & 0xFF) * alpha + 0.5F);
+		int b = (int) ((argb & 0xFF) * alpha + 0.5F);
+
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	static int hash(int argb) {
+		return (((argb >> 16) & 0xFF) * 3 +
+				((argb >> 8) & 0xFF) * 5 +
+				(argb & 0xFF) * 7 +
+				((argb >>> 24) * 11)) & 0x3F;
+	}
+
+}
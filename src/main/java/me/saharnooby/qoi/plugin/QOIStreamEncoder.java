@@ -0,0 +1,290 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+import me.saharnooby.qoi.QOIColorSpace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static me.saharnooby.qoi.plugin.QOIStreamDecoder.*;
+
+/**
+ * Encodes pixels into QOI chunks as they arrive, so the whole image
+ * does not need to be converted into a single pixel array first.
+ */
+final class QOIStreamEncoder {
+
+	private final OutputStream output;
+
+	private final int width;
+	private final int height;
+	// Channels of rows passed to the encoder and channels written to the header
+	private final int rowChannels;
+	private final int channels;
+	private final QOIColorSpace colorSpace;
+
+	// Pixels are stored as ARGB
+	private final int[] index = new int[64];
+
+	private int previous = 0xFF000000;
+
+	private int run;
+
+	private int row;
+
+	// Chunks written so far by opcode; size of the encoded data is derived from them
+	private long runChunks;
+	private long indexChunks;
+	private long diffChunks;
+	private long lumaChunks;
+	private long rgbChunks;
+	private long rgbaChunks;
+
+	private boolean finished;
+
+	// Receives checkpoints when a row index is being built
+	private QOIRowIndex.Builder indexBuilder;
+
+	QOIStreamEncoder(@NonNull OutputStream output, int width, int height, int channels, @NonNull QOIColorSpace colorSpace) {
+		this(output, width, height, channels, channels, colorSpace);
+	}
+
+	/**
+	 * @param rowChannels Channel count of rows passed to the encoder.
+	 * @param channels Channel count of the image. Alpha of rows is dropped when it is 3, and is set to 255 when rows have 3 channels.
+	 */
+	QOIStreamEncoder(@NonNull OutputStream output, int width, int height, int rowChannels, int channels, @NonNull QOIColorSpace colorSpace) {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Invalid image dimensions " + width + " x " + height);
+		}
+
+		if (rowChannels != 3 && rowChannels != 4) {
+			throw new IllegalArgumentException("Invalid channel count " + rowChannels);
+		}
+
+		if (channels != 3 && channels != 4) {
+			throw new IllegalArgumentException("Invalid channel count " + channels);
+		}
+
+		this.output = output;
+		this.width = width;
+		this.height = height;
+		this.rowChannels = rowChannels;
+		this.channels = channels;
+		this.colorSpace = colorSpace;
+	}
+
+	void writeHeader() throws IOException {
+		this.output.write('q');
+		this.output.write('o');
+		this.output.write('i');
+		this.output.write('f');
+		writeInt(this.width);
+		writeInt(this.height);
+		this.output.write(this.channels);
+		this.output.write(this.colorSpace == QOIColorSpace.SRGB ? 0 : 1);
+	}
+
+	/**
+	 * Makes the encoder add a checkpoint to the builder at the start of each row that is a multiple of its interval.
+	 */
+	void setIndexBuilder(QOIRowIndex.Builder indexBuilder) {
+		this.indexBuilder = indexBuilder;
+	}
+
+	/**
+	 * @return Number of bytes written after the header, including the end marker once {@link #finish()} was called.
+	 */
+	long getDataSize() {
+		return this.runChunks * QOIOpcode.RUN.getChunkSize() +
+				this.indexChunks * QOIOpcode.INDEX.getChunkSize() +
+				this.diffChunks * QOIOpcode.DIFF.getChunkSize() +
+				this.lumaChunks * QOIOpcode.LUMA.getChunkSize() +
+				this.rgbChunks * QOIOpcode.RGB.getChunkSize() +
+				this.rgbaChunks * QOIOpcode.RGBA.getChunkSize() +
+				(this.finished ? 8 : 0);
+	}
+
+	/**
+	 * Adds counts of chunks written so far to the array, indexed by {@link QOIOpcode} ordinal.
+	 */
+	void addChunkCounts(long @NonNull [] counts) {
+		counts[QOIOpcode.RUN.ordinal()] += this.runChunks;
+		counts[QOIOpcode.INDEX.ordinal()] += this.indexChunks;
+		counts[QOIOpcode.DIFF.ordinal()] += this.diffChunks;
+		counts[QOIOpcode.LUMA.ordinal()] += this.lumaChunks;
+		counts[QOIOpcode.RGB.ordinal()] += this.rgbChunks;
+		counts[QOIOpcode.RGBA.ordinal()] += this.rgbaChunks;
+	}
+
+	/**
+	 * Encodes a row of RGB or RGBA bytes, depending on channel count of rows.
+	 */
+	void encodeRow(byte @NonNull [] data, int offset) throws IOException {
+		startRow();
+
+		int rowChannels = this.rowChannels;
+		int end = offset + this.width * rowChannels;
+
+		if (rowChannels == 4 && this.channels == 4) {
+			for (int i = offset; i < end; i += 4) {
+				encodePixel(((data[i + 3] & 0xFF) << 24) | ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF));
+			}
+		} else if (rowChannels == 4) {
+			for (int i = offset; i < end; i += 4) {
+				encodePixel(0xFF000000 | ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF));
+			}
+		} else {
+			for (int i = offset; i < end; i += 3) {
+				encodePixel(0xFF000000 | ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF));
+			}
+		}
+	}
+
+	/**
+	 * Encodes a row of pixels packed as in {@code TYPE_INT_ARGB}, or as in {@code TYPE_INT_RGB} when rows have 3 channels.
+	 */
+	void encodeArgbRow(int @NonNull [] data, int offset) throws IOException {
+		startRow();
+
+		int end = offset + this.width;
+
+		if (this.rowChannels == 4 && this.channels == 4) {
+			for (int i = offset; i < end; i++) {
+				encodePixel(data[i]);
+			}
+		} else {
+			for (int i = offset; i < end; i++) {
+				encodePixel(data[i] | 0xFF000000);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a row of pixels packed as in {@code TYPE_INT_BGR}; rows must have 3 channels.
+	 */
+	void encodeBgrRow(int @NonNull [] data, int offset) throws IOException {
+		assert this.rowChannels == 3;
+
+		startRow();
+
+		int end = offset + this.width;
+
+		for (int i = offset; i < end; i++) {
+			int pixel = data[i];
+
+			encodePixel(0xFF000000 | ((pixel & 0xFF) << 16) | (pixel & 0xFF00) | ((pixel >> 16) & 0xFF));
+		}
+	}
+
+	/**
+	 * Writes the pending run and the end marker. Must be called after all rows were encoded.
+	 */
+	void finish() throws IOException {
+		if (this.run > 0) {
+			writeRun();
+		}
+
+		for (int i = 0; i < 7; i++) {
+			this.output.write(0);
+		}
+
+		this.output.write(1);
+
+		this.finished = true;
+	}
+
+	private void startRow() {
+		QOIRowIndex.Builder builder = this.indexBuilder;
+
+		if (builder != null && this.row > 0 && this.row % builder.getInterval() == 0) {
+			// A pending run is written later as a single chunk, which also covers pixels of rows above
+			builder.add(getDataSize(), this.previous, this.run, this.index);
+		}
+
+		this.row++;
+	}
+
+	private void encodePixel(int pixel) throws IOException {
+		int previous = this.previous;
+
+		if (pixel == previous) {
+			if (++this.run == 62) {
+				writeRun();
+			}
+
+			return;
+		}
+
+		if (this.run > 0) {
+			writeRun();
+		}
+
+		this.previous = pixel;
+
+		int hash = hash(pixel);
+
+		if (this.index[hash] == pixel) {
+			this.output.write(OP_INDEX | hash);
+
+			this.indexChunks++;
+
+			return;
+		}
+
+		this.index[hash] = pixel;
+
+		OutputStream output = this.output;
+
+		if ((pixel & 0xFF000000) == (previous & 0xFF000000)) {
+			int vr = (byte) ((pixel >> 16) - (previous >> 16));
+			int vg = (byte) ((pixel >> 8) - (previous >> 8));
+			int vb = (byte) (pixel - previous);
+
+			int vgR = vr - vg;
+			int vgB = vb - vg;
+
+			if (vr > -3 && vr < 2 && vg > -3 && vg < 2 && vb > -3 && vb < 2) {
+				output.write(OP_DIFF | ((vr + 2) << 4) | ((vg + 2) << 2) | (vb + 2));
+
+				this.diffChunks++;
+			} else if (vgR > -9 && vgR < 8 && vg > -33 && vg < 32 && vgB > -9 && vgB < 8) {
+				output.write(OP_LUMA | (vg + 32));
+				output.write(((vgR + 8) << 4) | (vgB + 8));
+
+				this.lumaChunks++;
+			} else {
+				output.write(OP_RGB);
+				output.write(pixel >> 16);
+				output.write(pixel >> 8);
+				output.write(pixel);
+
+				this.rgbChunks++;
+			}
+		} else {
+			output.write(OP_RGBA);
+			output.write(pixel >> 16);
+			output.write(pixel >> 8);
+			output.write(pixel);
+			output.write(pixel >>> 24);
+
+			this.rgbaChunks++;
+		}
+	}
+
+	private void writeRun() throws IOException {
+		this.output.write(OP_RUN | (this.run - 1));
+
+		this.runChunks++;
+
+		this.run = 0;
+	}
+
+	private void writeInt(int value) throws IOException {
+		this.output.write(value >>> 24);
+		this.output.write(value >> 16);
+		this.output.write(value >> 8);
+		this.output.write(value);
+	}
+
+}
@@ -0,0 +1,45 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+final class RasterUtil {
+
+	/**
+	 * Returns index of the first data element of a pixel in the data buffer of the raster; band offsets are not included.
+	 * @param x X coordinate of the pixel in the raster coordinate space.
+	 * @param y Y coordinate of the pixel in the raster coordinate space.
+	 */
+	static int getOffset(@NonNull Raster raster, int x, int y) {
+		SampleModel model = raster.getSampleModel();
+
+		int modelX = x - raster.getSampleModelTranslateX();
+		int modelY = y - raster.getSampleModelTranslateY();
+
+		int offset = raster.getDataBuffer().getOffset();
+
+		if (model instanceof ComponentSampleModel) {
+			ComponentSampleModel component = (ComponentSampleModel) model;
+
+			return offset + modelY * component.getScanlineStride() + modelX * component.getPixelStride();
+		}
+
+		if (model instanceof SinglePixelPackedSampleModel) {
+			return offset + modelY * ((SinglePixelPackedSampleModel) model).getScanlineStride() + modelX;
+		}
+
+		throw new IllegalArgumentException("Unsupported sample model " + model.getClass().getName());
+	}
+
+	/**
+	 * Returns index of the first data element of a raster row, with y relative to the raster origin.
+	 */
+	static int getRowOffset(@NonNull Raster raster, int y) {
+		return getOffset(raster, raster.getMinX(), raster.getMinY() + y);
+	}
+
+}
@@ -0,0 +1,16 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+/**
+ * Converts rows of a source image into RGB or RGBA bytes.
+ */
+@FunctionalInterface
+interface RowConverter {
+
+	/**
+	 * Writes converted pixels of row {@code y} into {@code dest}, starting at {@code offset}.
+	 */
+	void convertRow(int y, byte @NonNull [] dest, int offset);
+
+}
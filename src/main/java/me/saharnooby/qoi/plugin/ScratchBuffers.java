@@ -0,0 +1,69 @@
+package me.saharnooby.qoi.plugin;
+
+/**
+ * Scratch buffers of a reader or writer instance, which are reused between calls.
+ * Buffers are borrowed from a {@link QOIBufferPool} if one is set, and returned to it on {@link #release()}.
+ * Buffers may be longer than requested.
+ */
+final class ScratchBuffers {
+
+	private QOIBufferPool pool;
+
+	private byte[] bytes;
+	private int[] ints;
+
+	QOIBufferPool getPool() {
+		return this.pool;
+	}
+
+	void setPool(QOIBufferPool pool) {
+		release();
+
+		this.pool = pool;
+	}
+
+	byte[] getBytes(int length) {
+		if (this.bytes == null || this.bytes.length < length) {
+			if (this.bytes != null && this.pool != null) {
+				this.pool.release(this.bytes);
+			}
+
+			this.bytes = null;
+			this.bytes = this.pool != null ? this.pool.borrowBytes(length) : new byte[length];
+		}
+
+		return this.bytes;
+	}
+
+	int[] getInts(int length) {
+		if (this.ints == null || this.ints.length < length) {
+			if (this.ints != null && this.pool != null) {
+				this.pool.release(this.ints);
+			}
+
+			this.ints = null;
+			this.ints = this.pool != null ? this.pool.borrowInts(length) : new int[length];
+		}
+
+		return this.ints;
+	}
+
+	/**
+	 * Returns buffers to the pool, or drops them if there is no pool.
+	 */
+	void release() {
+		if (this.pool != null) {
+			if (this.bytes != null) {
+				this.pool.release(this.bytes);
+			}
+
+			if (this.ints != null) {
+				this.pool.release(this.ints);
+			}
+		}
+
+		this.bytes = null;
+		this.ints = null;
+	}
+
+}
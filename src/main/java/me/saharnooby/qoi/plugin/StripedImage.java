@@ -0,0 +1,210 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.Getter;
+import lombok.NonNull;
+import me.saharnooby.qoi.QOIColorSpace;
+
+import javax.imageio.IIOException;
+import javax.imageio.stream.ImageInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Layout of a container that stores horizontal stripes of an image as independent QOI images,
+ * so stripes can be encoded and decoded in parallel. Containers are not readable by other QOI decoders.
+ * <p>
+ * Container layout, all numbers are big-endian:
+ * <pre>
+ * "qois"      magic
+ * u32 u32     image width and height
+ * u8 u8       channel count and color space, as in a QOI header
+ * u32         stripe count
+ * u64[count]  size of each stripe
+ * stripes:    QOI images of ceil(height / count) rows each, the last one may have fewer rows
+ * </pre>
+ */
+final class StripedImage {
+
+	static final byte MAGIC_SUFFIX = 's';
+
+	// Stripe table entries allocated before they are read, when the length of the input is not known
+	private static final int INITIAL_CAPACITY = 1024;
+
+	@Getter
+	private final QOIHeader header;
+
+	private final int stripeHeight;
+
+	// Stream positions of stripes, followed by the end of the container
+	private final long[] offsets;
+
+	private StripedImage(@NonNull QOIHeader header, int stripeHeight, long @NonNull [] offsets) {
+		this.header = header;
+		this.stripeHeight = stripeHeight;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Reads the stripe table of a container with the specified header, which starts at the specified offset.
+	 */
+	static StripedImage read(@NonNull ImageInputStream input, long offset, @NonNull QOIHeader header) throws IOException {
+		input.seek(offset + QOIHeader.SIZE);
+
+		byte[] b = new byte[8];
+
+		input.readFully(b, 0, 4);
+
+		int count = readInt(b, 0);
+
+		if (count < 1 || count > header.getHeight()) {
+			throw new IIOException("Invalid stripe count " + count);
+		}
+
+		int stripeHeight = getStripeHeight(header.getHeight(), count);
+
+		if (getStripeCount(header.getHeight(), stripeHeight) != count) {
+			throw new IIOException("Invalid stripe count " + count + " for height " + header.getHeight());
+		}
+
+		long length = input.length();
+
+		// Count comes from the input, so the table must fit into it before anything is allocated
+		long limit = length >= 0 ? length : Long.MAX_VALUE;
+
+		long tableEnd = offset + QOIHeader.SIZE + 4 + 8L * count;
+
+		if (tableEnd > limit) {
+			throw new IIOException("Stripe table of " + count + " stripes does not fit into the input");
+		}
+
+		// With unknown length, the table grows as it is read
+		long[] offsets = new long[length >= 0 ? count + 1 : Math.min(count + 1, INITIAL_CAPACITY)];
+
+		offsets[0] = tableEnd;
+
+		for (int k = 0; k < count; k++) {
+			input.readFully(b);
+
+			long size = ((long) readInt(b, 0) << 32) | (readInt(b, 4) & 0xFFFFFFFFL);
+
+			// A stripe takes at least its header, one chunk and the end marker
+			if (size < QOIHeader.SIZE + 9) {
+				throw new IIOException("Invalid size of stripe " + k);
+			}
+
+			if (size > limit - offsets[k]) {
+				throw new IIOException("Stripe " + k + " does not fit into the input");
+			}
+
+			if (k + 1 == offsets.length) {
+				offsets = Arrays.copyOf(offsets, (int) Math.min(count + 1L, offsets.length * 2L));
+			}
+
+			offsets[k + 1] = offsets[k] + size;
+		}
+
+		return new StripedImage(header, stripeHeight, offsets);
+	}
+
+	/**
+	 * Writes the container header and the stripe table; stripes must follow in the same order.
+	 */
+	static void writeHeader(@NonNull OutputStream out,
+	                        int width,
+	                        int height,
+	                        int channels,
+	                        @NonNull QOIColorSpace colorSpace,
+	                        long @NonNull [] stripeSizes) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+
+		data.write('q');
+		data.write('o');
+		data.write('i');
+		data.write(MAGIC_SUFFIX);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.write(channels);
+		data.write(colorSpace == QOIColorSpace.SRGB ? 0 : 1);
+		data.writeInt(stripeSizes.length);
+
+		for (long size : stripeSizes) {
+			data.writeLong(size);
+		}
+
+		data.flush();
+	}
+
+	static int getStripeHeight(int height, int stripeCount) {
+		return (int) (((long) height + stripeCount - 1) / stripeCount);
+	}
+
+	/**
+	 * Returns the number of stripes actually written for the height, which may be less than requested.
+	 */
+	static int getStripeCount(int height, int stripeHeight) {
+		return (int) (((long) height + stripeHeight - 1) / stripeHeight);
+	}
+
+	int getStripeCount() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * @return Index of the stripe containing the specified row.
+	 */
+	int getStripe(int y) {
+		return y / this.stripeHeight;
+	}
+
+	int getFirstRow(int stripe) {
+		return stripe * this.stripeHeight;
+	}
+
+	int getRowCount(int stripe) {
+		return Math.min(this.stripeHeight, this.header.getHeight() - getFirstRow(stripe));
+	}
+
+	long getOffset(int stripe) {
+		return this.offsets[stripe];
+	}
+
+	long getSize(int stripe) {
+		return this.offsets[stripe + 1] - this.offsets[stripe];
+	}
+
+	/**
+	 * @return Stream position right after the last stripe.
+	 */
+	long getEnd() {
+		return this.offsets[this.offsets.length - 1];
+	}
+
+	/**
+	 * Reads the header of a stripe, checking that it matches the container.
+	 */
+	QOIHeader readStripeHeader(@NonNull InputStream in, int stripe) throws IOException {
+		QOIHeader header = QOIHeader.read(new DataInputStream(in));
+
+		if (header.isStriped() ||
+				header.getWidth() != this.header.getWidth() ||
+				header.getHeight() != getRowCount(stripe) ||
+				header.getChannels() != this.header.getChannels() ||
+				header.getColorSpace() != this.header.getColorSpace()) {
+			throw new IIOException("Header of stripe " + stripe + " does not match the container");
+		}
+
+		return header;
+	}
+
+	private static int readInt(byte @NonNull [] b, int offset) {
+		return ((b[offset] & 0xFF) << 24) |
+				((b[offset + 1] & 0xFF) << 16) |
+				((b[offset + 2] & 0xFF) << 8) |
+				(b[offset + 3] & 0xFF);
+	}
+
+}
@@ -0,0 +1,86 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import java.awt.*;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+
+/**
+ * Provides pixels of a {@link RenderedImage} one row of tiles at a time, so the
+ * whole image never needs to be computed or copied at once, unlike with {@link RenderedImage#getData()}.
+ * Rows must be requested in ascending order to avoid requesting tiles more than once.
+ */
+final class TileRowReader {
+
+	private final RenderedImage image;
+	private final Rectangle bounds;
+
+	private final int minTileX;
+	private final int maxTileX;
+
+	private int tileY = Integer.MIN_VALUE;
+	private Raster strip;
+
+	/**
+	 * @param bounds Region of the image that will be read, must be inside image bounds.
+	 */
+	TileRowReader(@NonNull RenderedImage image, @NonNull Rectangle bounds) {
+		this.image = image;
+		this.bounds = bounds;
+		this.minTileX = getTileX(bounds.x);
+		this.maxTileX = getTileX(bounds.x + bounds.width - 1);
+	}
+
+	/**
+	 * Returns a raster that contains row {@code y} of the region, in image coordinates.
+	 */
+	Raster getStrip(int y) {
+		int tileY = Math.floorDiv(y - this.image.getTileGridYOffset(), this.image.getTileHeight());
+
+		if (tileY != this.tileY) {
+			// Previous strip is released before computing the next one
+			this.strip = null;
+			this.strip = readStrip(tileY);
+			this.tileY = tileY;
+		}
+
+		return this.strip;
+	}
+
+	private Raster readStrip(int tileY) {
+		if (this.minTileX == this.maxTileX) {
+			// Tile covers the whole region width, no need to copy anything
+			return this.image.getTile(this.minTileX, tileY);
+		}
+
+		int tileHeight = this.image.getTileHeight();
+		int top = Math.max(this.bounds.y, this.image.getTileGridYOffset() + tileY * tileHeight);
+		int bottom = Math.min(this.bounds.y + this.bounds.height, this.image.getTileGridYOffset() + (tileY + 1) * tileHeight);
+
+		Rectangle stripBounds = new Rectangle(this.bounds.x, top, this.bounds.width, bottom - top);
+
+		WritableRaster strip = null;
+
+		for (int tileX = this.minTileX; tileX <= this.maxTileX; tileX++) {
+			Raster tile = this.image.getTile(tileX, tileY);
+
+			if (strip == null) {
+				strip = tile.createCompatibleWritableRaster(stripBounds);
+			}
+
+			// WritableRaster.setRect does not copy anything for some raster implementations, so tiles are clipped explicitly
+			Rectangle part = stripBounds.intersection(tile.getBounds());
+
+			strip.setDataElements(0, 0, tile.createChild(part.x, part.y, part.width, part.height, part.x, part.y, null));
+		}
+
+		return strip;
+	}
+
+	private int getTileX(int x) {
+		return Math.floorDiv(x - this.image.getTileGridXOffset(), this.image.getTileWidth());
+	}
+
+}
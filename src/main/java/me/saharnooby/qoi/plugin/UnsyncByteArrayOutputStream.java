@@ -0,0 +1,64 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Like {@link java.io.ByteArrayOutputStream}, but without synchronization, which is noticeable
+ * when the encoder writes single bytes. Each instance must be used by one thread at a time.
+ */
+final class UnsyncByteArrayOutputStream extends OutputStream {
+
+	private byte[] buffer = new byte[8192];
+	private int size;
+
+	@Override
+	public void write(int b) {
+		if (this.size == this.buffer.length) {
+			grow(this.size + 1);
+		}
+
+		this.buffer[this.size++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte @NonNull [] b, int off, int len) {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (len > this.buffer.length - this.size) {
+			grow(this.size + len);
+		}
+
+		System.arraycopy(b, off, this.buffer, this.size, len);
+
+		this.size += len;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	void writeTo(@NonNull OutputStream out) throws IOException {
+		out.write(this.buffer, 0, this.size);
+	}
+
+	private void grow(int minCapacity) {
+		if (minCapacity < 0) {
+			throw new OutOfMemoryError("Buffer size exceeds 2 GiB");
+		}
+
+		int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) this.buffer.length * 2, minCapacity));
+
+		if (capacity < minCapacity) {
+			throw new OutOfMemoryError("Buffer size exceeds 2 GiB");
+		}
+
+		this.buffer = Arrays.copyOf(this.buffer, capacity);
+	}
+
+}
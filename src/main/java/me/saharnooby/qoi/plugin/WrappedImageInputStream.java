@@ -8,28 +8,147 @@ import java.io.InputStream;
 
 /**
  * Wraps an {@link ImageInputStream} into an {@link InputStream}.
+ * Bytes are read from the underlying stream in blocks; {@link #close()} seeks the underlying stream
+ * back to the first byte not consumed from this stream, so data following the image is not lost.
+ * The underlying stream must not be used until this stream is closed.
  */
-final class WrappedImageInputStream extends InputStream {
+final class WrappedImageInputStream extends InputStream implements MeteredStream {
+
+	private static final int BUFFER_SIZE = 8192;
 
 	private final ImageInputStream input;
 
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+
+	private long ioNanos;
+	private long byteCount;
+
 	public WrappedImageInputStream(@NonNull ImageInputStream input) {
 		this.input = input;
 	}
 
 	@Override
 	public int read() throws IOException {
-		return this.input.read();
+		if (this.position == this.limit && !fill()) {
+			return -1;
+		}
+
+		return this.buffer[this.position++] & 0xFF;
 	}
 
 	@Override
-	public int read(byte @NonNull [] b) throws IOException {
-		return this.input.read(b);
+	public int read(byte @NonNull [] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if (this.position == this.limit) {
+			// Large reads bypass the buffer
+			if (len >= BUFFER_SIZE) {
+				return readThrough(b, off, len);
+			}
+
+			if (!fill()) {
+				return -1;
+			}
+		}
+
+		int count = Math.min(len, this.limit - this.position);
+
+		System.arraycopy(this.buffer, this.position, b, off, count);
+
+		this.position += count;
+
+		return count;
 	}
 
 	@Override
-	public int read(byte @NonNull [] b, int off, int len) throws IOException {
-		return this.input.read(b, off, len);
+	public long skip(long n) throws IOException {
+		if (n <= 0) {
+			return 0;
+		}
+
+		int buffered = this.limit - this.position;
+
+		if (n <= buffered) {
+			this.position += (int) n;
+
+			return n;
+		}
+
+		this.position = this.limit;
+
+		long start = System.nanoTime();
+
+		long skipped = this.input.skipBytes(n - buffered);
+
+		this.ioNanos += System.nanoTime() - start;
+		this.byteCount += skipped;
+
+		return buffered + skipped;
+	}
+
+	@Override
+	public int available() {
+		return this.limit - this.position;
+	}
+
+	/**
+	 * Seeks the underlying stream back to the first byte not consumed from this stream, discarding read-ahead bytes.
+	 * The underlying stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		int unread = this.limit - this.position;
+
+		if (unread > 0) {
+			this.input.seek(this.input.getStreamPosition() - unread);
+		}
+
+		this.position = 0;
+		this.limit = 0;
+	}
+
+	private boolean fill() throws IOException {
+		int count = readThrough(this.buffer, 0, BUFFER_SIZE);
+
+		this.position = 0;
+		this.limit = Math.max(count, 0);
+
+		return count > 0;
+	}
+
+	private int readThrough(byte @NonNull [] b, int off, int len) throws IOException {
+		long start = System.nanoTime();
+
+		int count = this.input.read(b, off, len);
+
+		this.ioNanos += System.nanoTime() - start;
+		this.byteCount += Math.max(count, 0);
+
+		return count;
+	}
+
+	/**
+	 * Returns time spent reading the underlying stream.
+	 */
+	@Override
+	public long getIONanos() {
+		return this.ioNanos;
+	}
+
+	/**
+	 * Returns count of bytes read from the underlying stream, including bytes read ahead.
+	 */
+	@Override
+	public long getByteCount() {
+		return this.byteCount;
 	}
 
 }
@@ -8,28 +8,100 @@ import java.io.OutputStream;
 
 /**
  * Wraps an {@link ImageOutputStream} into an {@link OutputStream}.
+ * Small writes are coalesced into blocks, since each call to an {@link ImageOutputStream} is relatively expensive.
+ * {@link #flush()} must be called before using the underlying stream directly.
  */
-final class WrappedImageOutputStream extends OutputStream {
+final class WrappedImageOutputStream extends OutputStream implements MeteredStream {
+
+	private static final int BUFFER_SIZE = 8192;
 
 	private final ImageOutputStream output;
 
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+
+	private long ioNanos;
+	private long byteCount;
+
 	public WrappedImageOutputStream(@NonNull ImageOutputStream output) {
 		this.output = output;
 	}
 
 	@Override
-	public void write(byte @NonNull [] b) throws IOException {
-		this.output.write(b);
+	public void write(int b) throws IOException {
+		if (this.count == BUFFER_SIZE) {
+			flushBuffer();
+		}
+
+		this.buffer[this.count++] = (byte) b;
 	}
 
 	@Override
 	public void write(byte @NonNull [] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (len >= BUFFER_SIZE) {
+			// Large blocks are written directly
+			flushBuffer();
+
+			writeThrough(b, off, len);
+
+			return;
+		}
+
+		if (len > BUFFER_SIZE - this.count) {
+			flushBuffer();
+		}
+
+		System.arraycopy(b, off, this.buffer, this.count, len);
+
+		this.count += len;
+	}
+
+	/**
+	 * Writes buffered bytes to the underlying stream. {@link ImageOutputStream#flush()} is not called,
+	 * since it discards the ability to seek back.
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+	}
+
+	/**
+	 * Writes buffered bytes to the underlying stream, which is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		flushBuffer();
+	}
+
+	private void flushBuffer() throws IOException {
+		if (this.count > 0) {
+			writeThrough(this.buffer, 0, this.count);
+
+			this.count = 0;
+		}
+	}
+
+	private void writeThrough(byte @NonNull [] b, int off, int len) throws IOException {
+		long start = System.nanoTime();
+
 		this.output.write(b, off, len);
+
+		this.ioNanos += System.nanoTime() - start;
+		this.byteCount += len;
 	}
 
 	@Override
-	public void write(int b) throws IOException {
-		this.output.write(b);
+	public long getIONanos() {
+		return this.ioNanos;
+	}
+
+	@Override
+	public long getByteCount() {
+		return this.byteCount;
 	}
 
 }
@@ -0,0 +1,119 @@
+package me.saharnooby.qoi.plugin;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events of the plugin, loaded from the multi-release JAR on Java 11 and newer
+ * in place of the no-op stubs in {@code src/main/java}. Fields must match the stubs.
+ */
+final class FlightRecorderEvents {
+
+	private FlightRecorderEvents() {
+
+	}
+
+	@Name("me.saharnooby.qoi.Read")
+	@Label("QOI Image Read")
+	@Description("Image decoded by QOIImageReader, including reading from the input and storing pixels into the destination")
+	@Category("QOI")
+	static final class Read extends Event {
+
+		@Label("Image Index")
+		int imageIndex;
+
+		@Label("Width")
+		int width;
+
+		@Label("Height")
+		int height;
+
+		@Label("Channels")
+		int channels;
+
+		@Label("Pixels")
+		@Description("Pixels stored into the destination image")
+		long pixels;
+
+		@Label("Bytes")
+		@Description("Encoded bytes from the start of the image to the last byte decoded from it, 0 if decoded pixels were reused")
+		@DataAmount
+		long bytes;
+
+		@Label("Conversion Path")
+		@Description("How decoded pixels were stored into the destination image")
+		String path;
+
+	}
+
+	@Name("me.saharnooby.qoi.Write")
+	@Label("QOI Image Write")
+	@Description("Image encoded by QOIImageWriter, including conversion of pixels and writing to the output")
+	@Category("QOI")
+	static final class Write extends Event {
+
+		@Label("Image Index")
+		int imageIndex;
+
+		@Label("Width")
+		int width;
+
+		@Label("Height")
+		int height;
+
+		@Label("Channels")
+		int channels;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Stripes")
+		@Description("Requested stripe count of a striped container, 0 for plain images")
+		int stripes;
+
+		@Label("Conversion Path")
+		@Description("How pixels of the source image were converted into RGB(A) rows")
+		String path;
+
+	}
+
+	@Name("me.saharnooby.qoi.Conversion")
+	@Label("QOI Pixel Conversion")
+	@Description("Image converted into QOI pixel data without encoding it")
+	@Category("QOI")
+	static final class Conversion extends Event {
+
+		@Label("Width")
+		int width;
+
+		@Label("Height")
+		int height;
+
+		@Label("Channels")
+		int channels;
+
+		@Label("Conversion Path")
+		String path;
+
+	}
+
+	@Name("me.saharnooby.qoi.Probe")
+	@Label("QOI Input Probe")
+	@Description("Input checked by QOIImageReaderSPI for the QOI magic, for example when ImageIO looks for a reader")
+	@Category("QOI")
+	static final class Probe extends Event {
+
+		@Label("Input Type")
+		String inputType;
+
+		@Label("Matched")
+		boolean matched;
+
+	}
+
+}
@@ -9,8 +9,17 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 /**
  * @author saharNooby
@@ -33,6 +42,127 @@ class QOIUtilAWTTest {
 		test("dice.png");
 	}
 
+	@Test
+	void testTranscode() throws Exception {
+		InputStream in = Objects.requireNonNull(getClass().getResourceAsStream("/dice.png"), "dice.png");
+
+		BufferedImage source = Objects.requireNonNull(ImageIO.read(in), "dice.png");
+
+		Path dir = Files.createTempDirectory("qoi-transcode");
+
+		try {
+			File png = dir.resolve("dice.png").toFile();
+			ImageIO.write(source, "png", png);
+
+			File invalid = dir.resolve("invalid.png").toFile();
+			Files.write(invalid.toPath(), new byte[] {1, 2, 3});
+
+			List<QOITranscodeJob> jobs = new ArrayList<>();
+
+			for (int i = 0; i < 4; i++) {
+				jobs.add(new QOITranscodeJob(png, dir.resolve("dice" + i + ".qoi").toFile(), "qoi"));
+			}
+
+			jobs.add(new QOITranscodeJob(invalid, dir.resolve("invalid.qoi").toFile(), "qoi"));
+
+			List<QOITranscodeResult> reported = Collections.synchronizedList(new ArrayList<>());
+
+			ExecutorService executor = Executors.newFixedThreadPool(3);
+
+			// Budget fits a single decoded image, so jobs run one at a time
+			List<QOITranscodeResult> results;
+
+			try {
+				results = QOIUtilAWT.transcode(jobs, executor, source.getWidth() * source.getHeight() * 4L, reported::add);
+			} finally {
+				executor.shutdown();
+			}
+
+			Assertions.assertEquals(jobs.size(), results.size());
+			Assertions.assertEquals(jobs.size(), reported.size());
+
+			for (int i = 0; i < 4; i++) {
+				QOITranscodeResult result = results.get(i);
+
+				Assertions.assertSame(jobs.get(i), result.getJob());
+				Assertions.assertTrue(result.isSuccessful(), String.valueOf(result.getError()));
+				Assertions.assertEquals(source.getWidth(), result.getWidth());
+				Assertions.assertEquals(result.getJob().getTarget().length(), result.getTargetSize());
+
+				TestUtil.assertPixelsEqual(source, QOIUtilAWT.readImage(result.getJob().getTarget()), null);
+			}
+
+			Assertions.assertFalse(results.get(4).isSuccessful());
+
+			// And back to PNG
+			List<QOITranscodeResult> back = QOIUtilAWT.transcode(Collections.singletonList(
+					new QOITranscodeJob(jobs.get(0).getTarget(), dir.resolve("back.png").toFile(), "png")
+			), 1);
+
+			Assertions.assertTrue(back.get(0).isSuccessful());
+
+			TestUtil.assertPixelsEqual(source, ImageIO.read(dir.resolve("back.png").toFile()), null);
+		} finally {
+			try (Stream<Path> files = Files.list(dir)) {
+				files.forEach(file -> file.toFile().delete());
+			}
+
+			Files.delete(dir);
+		}
+	}
+
+	@Test
+	void testTranscodeListenerFailure() throws Exception {
+		InputStream in = Objects.requireNonNull(getClass().getResourceAsStream("/dice.png"), "dice.png");
+
+		BufferedImage source = Objects.requireNonNull(ImageIO.read(in), "dice.png");
+
+		Path dir = Files.createTempDirectory("qoi-transcode");
+
+		try {
+			File png = dir.resolve("dice.png").toFile();
+			ImageIO.write(source, "png", png);
+
+			File invalid = dir.resolve("invalid.png").toFile();
+			Files.write(invalid.toPath(), new byte[] {1, 2, 3});
+
+			// Size of the invalid file is read on the calling thread, so the listener fails there
+			List<QOITranscodeJob> jobs = new ArrayList<>();
+			jobs.add(new QOITranscodeJob(png, dir.resolve("first.qoi").toFile(), "qoi"));
+			jobs.add(new QOITranscodeJob(invalid, dir.resolve("invalid.qoi").toFile(), "qoi"));
+			jobs.add(new QOITranscodeJob(png, dir.resolve("last.qoi").toFile(), "qoi"));
+
+			List<QOITranscodeResult> reported = Collections.synchronizedList(new ArrayList<>());
+
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+
+			try {
+				IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> QOIUtilAWT.transcode(jobs, executor, Long.MAX_VALUE, result -> {
+					reported.add(result);
+
+					if (!result.isSuccessful()) {
+						throw new IllegalStateException("Listener failure");
+					}
+				}));
+
+				Assertions.assertEquals("Listener failure", e.getMessage());
+			} finally {
+				executor.shutdown();
+			}
+
+			// The submitted job finished before the exception was rethrown, the job after the failure was not submitted
+			Assertions.assertEquals(2, reported.size());
+			Assertions.assertTrue(reported.stream().anyMatch(result -> result.getJob() == jobs.get(0) && result.isSuccessful()));
+			Assertions.assertFalse(jobs.get(2).getTarget().exists());
+		} finally {
+			try (Stream<Path> files = Files.list(dir)) {
+				files.forEach(file -> file.toFile().delete());
+			}
+
+			Files.delete(dir);
+		}
+	}
+
 	@Test
 	void testDirectUseOfDataBuffer() {
 		// 4 channel image
@@ -0,0 +1,60 @@
+package me.saharnooby.qoi.benchmark;
+
+import me.saharnooby.qoi.util.SyntheticImages;
+import me.saharnooby.qoi.util.Timing;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of {@code ImageIO.write(image, "qoi", file)} with the ImageIO disk cache enabled and disabled.
+ * Uses generated images, so no image corpus is needed. Optional argument is a directory for the output file.
+ */
+public final class FileWriteBenchmark {
+
+	public static volatile Object blackHole;
+
+	public static void main(String[] args) throws Exception {
+		// Settings
+		int width = 3840;
+		int height = 2160;
+		int warmUpSeconds = 5;
+		int runSeconds = 5;
+
+		// ---
+
+		File file = File.createTempFile("qoi-benchmark", ".qoi", args.length > 0 ? new File(args[0]) : null);
+		file.deleteOnExit();
+
+		System.out.println(System.getProperty("java.runtime.name") + " " + System.getProperty("java.runtime.version"));
+		System.out.println(width + " x " + height + ", warm up: " + warmUpSeconds + " seconds, run: " + runSeconds + " seconds");
+		System.out.println();
+
+		// Noisy enough that encoded data, not runs, dominates the output
+		BufferedImage photo = SyntheticImages.create(SyntheticImages.Kind.PHOTO, width, height);
+
+		for (int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR}) {
+			BufferedImage image = SyntheticImages.copy(photo, type);
+
+			for (boolean useCache : new boolean[] {false, true}) {
+				ImageIO.setUseCache(useCache);
+
+				double delay = Timing.measure(TimeUnit.SECONDS.toNanos(warmUpSeconds), TimeUnit.SECONDS.toNanos(runSeconds), 1, () -> {
+					if (!ImageIO.write(image, "QOI", file)) {
+						throw new IllegalStateException("Failed to write QOI");
+					}
+				})[0];
+
+				blackHole = file.length();
+
+				System.out.println("Type " + type + ", cache " + (useCache ? "on" : "off") + ": " +
+						Timing.formatMs(delay) + ", " +
+						String.format(Locale.ROOT, "%.1f MB/s of encoded data", file.length() / (delay / 1_000_000_000D) / 1024 / 1024));
+			}
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package me.saharnooby.qoi.benchmark;
 
 import lombok.NonNull;
+import me.saharnooby.qoi.QOIUtilAWT;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -29,7 +30,16 @@ public final class FormatComparisonBenchmark {
 
 	private enum Format {
 
-		QOI, PNG
+		QOI("QOI"),
+		// Same encoder as QOI, but decoded from byte[] by QOIUtilAWT, bypassing ImageInputStream wrapping
+		QOI_RAW("QOI"),
+		PNG("PNG");
+
+		private final String formatName;
+
+		Format(@NonNull String formatName) {
+			this.formatName = formatName;
+		}
 
 	}
 
@@ -94,11 +104,13 @@ public final class FormatComparisonBenchmark {
 						long iterationStart = System.nanoTime();
 
 						if (encode) {
-							if (!ImageIO.write(image.image, format.name(), out)) {
+							if (!ImageIO.write(image.image, format.formatName, out)) {
 								throw new IllegalStateException("Failed to write " + format);
 							}
 
 							blackHole = encodedSize = out.size();
+						} else if (format == Format.QOI_RAW) {
+							blackHole = QOIUtilAWT.readImage(image.encoded.get(format));
 						} else {
 							blackHole = Objects.requireNonNull(ImageIO.read(new ByteArrayInputStream(image.encoded.get(format))));
 						}
@@ -310,7 +322,7 @@ public final class FormatComparisonBenchmark {
 			for (Format format : Format.values()) {
 				out.reset();
 
-				if (!ImageIO.write(this.image, format.name(), out)) {
+				if (!ImageIO.write(this.image, format.formatName, out)) {
 					throw new IllegalStateException("Failed to encode " + file + " as " + format);
 				}
 
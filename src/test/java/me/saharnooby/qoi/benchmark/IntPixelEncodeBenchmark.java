@@ -0,0 +1,75 @@
+package me.saharnooby.qoi.benchmark;
+
+import me.saharnooby.qoi.QOIUtil;
+import me.saharnooby.qoi.QOIUtilAWT;
+import me.saharnooby.qoi.util.SyntheticImages;
+import me.saharnooby.qoi.util.Timing;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding of packed int images through an intermediate RGB(A) byte array
+ * ({@link QOIUtilAWT#createFromBufferedImage} and {@link QOIUtil#writeImage}) with
+ * direct encoding from the int array done by the ImageIO writer.
+ * Uses generated 4K screenshot-like images, so no image corpus is needed.
+ */
+public final class IntPixelEncodeBenchmark {
+
+	public static volatile Object blackHole;
+
+	public static void main(String[] args) throws Exception {
+		// Settings
+		int width = 3840;
+		int height = 2160;
+		int warmUpSeconds = 5;
+		int runSeconds = 5;
+
+		// ---
+
+		// Disable cache so file IO does not skew the results
+		ImageIO.setUseCache(false);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024 * 1024);
+
+		System.out.println(System.getProperty("java.runtime.name") + " " + System.getProperty("java.runtime.version"));
+		System.out.println(width + " x " + height + ", warm up: " + warmUpSeconds + " seconds, run: " + runSeconds + " seconds");
+		System.out.println();
+
+		BufferedImage screenshot = SyntheticImages.create(SyntheticImages.Kind.SCREENSHOT, width, height);
+
+		for (int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_BGR}) {
+			BufferedImage image = SyntheticImages.copy(screenshot, type);
+
+			double byteArray = measure(warmUpSeconds, runSeconds, () -> {
+				out.reset();
+
+				QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(image), out);
+			});
+
+			double direct = measure(warmUpSeconds, runSeconds, () -> {
+				out.reset();
+
+				if (!ImageIO.write(image, "QOI", out)) {
+					throw new IllegalStateException("Failed to write QOI");
+				}
+			});
+
+			blackHole = out.size();
+
+			System.out.println("Type " + type + ": " +
+					"via byte array " + Timing.formatMs(byteArray) + ", " +
+					"direct " + Timing.formatMs(direct) + ", " +
+					String.format(Locale.ROOT, "%+.1f%%", (direct - byteArray) / byteArray * 100));
+		}
+	}
+
+	// Returns average iteration time in nanoseconds
+	private static double measure(int warmUpSeconds, int runSeconds, Timing.Task task) throws Exception {
+		return Timing.measure(TimeUnit.SECONDS.toNanos(warmUpSeconds), TimeUnit.SECONDS.toNanos(runSeconds), 1, task)[0];
+	}
+
+}
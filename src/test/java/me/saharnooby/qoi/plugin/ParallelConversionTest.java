@@ -0,0 +1,67 @@
+package me.saharnooby.qoi.plugin;
+
+import me.saharnooby.qoi.util.SyntheticImages;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelConversionTest {
+
+	private static final int[] BUFFERED_IMAGE_TYPES = new int[] {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_INT_ARGB_PRE,
+			BufferedImage.TYPE_INT_BGR,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR,
+			BufferedImage.TYPE_4BYTE_ABGR_PRE
+	};
+
+	@Test
+	void testStripesMatchSequentialConversion() {
+		// Tall enough to be split into several stripes
+		int width = 256;
+		int height = ParallelConversion.MIN_STRIPE_PIXELS / width * 8;
+
+		BufferedImage source = SyntheticImages.create(SyntheticImages.Kind.SPRITES, width, height);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			for (int type : BUFFERED_IMAGE_TYPES) {
+				BufferedImage image = SyntheticImages.copy(source, type);
+
+				int channels = image.getColorModel().hasAlpha() ? 4 : 3;
+
+				RowConverter converter = QOIImageWriter.createRowConverter(image, channels);
+
+				byte[] expected = new byte[width * height * channels];
+
+				for (int y = 0; y < height; y++) {
+					converter.convertRow(y, expected, y * width * channels);
+				}
+
+				Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+				byte[] actual = new byte[expected.length];
+
+				ParallelConversion.convert(width, height, channels, (y, dest, offset) -> {
+					threads.add(Thread.currentThread());
+
+					converter.convertRow(y, dest, offset);
+				}, actual, pool);
+
+				Assertions.assertArrayEquals(expected, actual, "image type " + type);
+
+				Assertions.assertFalse(threads.contains(Thread.currentThread()), "image type " + type);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
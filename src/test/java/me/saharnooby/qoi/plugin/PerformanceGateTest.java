@@ -0,0 +1,152 @@
+package me.saharnooby.qoi.plugin;
+
+import lombok.NonNull;
+import me.saharnooby.qoi.QOIUtilAWT;
+import me.saharnooby.qoi.util.SyntheticImages;
+import me.saharnooby.qoi.util.Timing;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that images are converted by their fast paths, and that encode and decode throughput on generated images
+ * did not drop below numbers in {@code perf-baseline.properties} by more than the tolerance. Enabled by the perf profile:
+ * {@code mvn -P perf test}. Measured numbers are written to {@code target/perf-results.properties},
+ * which can be copied over the baseline to check them on that hardware.
+ */
+@EnabledIfSystemProperty(named = "qoi.perf", matches = "true")
+class PerformanceGateTest {
+
+	private static final int WIDTH = 1024;
+	private static final int HEIGHT = 768;
+
+	private static final long WARM_UP_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long ROUND_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+	private static final int ROUNDS = 7;
+
+	public static volatile Object blackHole;
+
+	@Test
+	void testConversionPaths() throws IOException {
+		BufferedImage source = SyntheticImages.create(SyntheticImages.Kind.SPRITES, 64, 48);
+
+		// Pixel data of images decoded by QOIUtilAWT is used as is
+		check(SyntheticImages.copyInterleaved(source, false), QOIConversionPath.DIRECT, QOIConversionPath.DIRECT);
+		check(SyntheticImages.copyInterleaved(source, true), QOIConversionPath.DIRECT, QOIConversionPath.DIRECT);
+		check(QOIUtilAWT.convertToBufferedImage(QOIUtilAWT.createFromBufferedImage(source)), QOIConversionPath.DIRECT, QOIConversionPath.DIRECT);
+
+		check(BufferedImage.TYPE_INT_ARGB, source, QOIConversionPath.PACKED_INT, QOIConversionPath.TYPE_SPECIFIC);
+		check(BufferedImage.TYPE_INT_RGB, source, QOIConversionPath.PACKED_INT, QOIConversionPath.TYPE_SPECIFIC);
+		check(BufferedImage.TYPE_INT_BGR, source, QOIConversionPath.PACKED_INT, QOIConversionPath.TYPE_SPECIFIC);
+		check(BufferedImage.TYPE_3BYTE_BGR, source, QOIConversionPath.TYPE_SPECIFIC, QOIConversionPath.TYPE_SPECIFIC);
+		check(BufferedImage.TYPE_4BYTE_ABGR, source, QOIConversionPath.TYPE_SPECIFIC, QOIConversionPath.TYPE_SPECIFIC);
+		check(BufferedImage.TYPE_BYTE_GRAY, source, QOIConversionPath.TYPE_SPECIFIC, QOIConversionPath.TYPE_SPECIFIC);
+
+		// Premultiplied alpha has to be divided out by the ColorModel
+		check(BufferedImage.TYPE_INT_ARGB_PRE, source, QOIConversionPath.COLOR_MODEL, QOIConversionPath.COLOR_MODEL);
+		check(BufferedImage.TYPE_4BYTE_ABGR_PRE, source, QOIConversionPath.COLOR_MODEL, QOIConversionPath.COLOR_MODEL);
+	}
+
+	@Test
+	void testThroughput() throws IOException {
+		Properties baseline = new Properties();
+
+		try (InputStream in = Objects.requireNonNull(getClass().getResourceAsStream("/perf-baseline.properties"), "Baseline not found")) {
+			baseline.load(in);
+		}
+
+		double tolerance = Double.parseDouble(System.getProperty("qoi.perf.tolerance", baseline.getProperty("tolerance", "0.25")));
+
+		Properties results = new Properties();
+
+		List<String> failures = new ArrayList<>();
+
+		for (SyntheticImages.Kind kind : SyntheticImages.Kind.values()) {
+			BufferedImage image = SyntheticImages.create(kind, WIDTH, HEIGHT);
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) QOIImageWriter.getMaxEncodedSize(WIDTH, HEIGHT, 4));
+
+			double encode = measure(() -> {
+				buffer.clear();
+
+				QOIUtilAWT.writeImage(image, buffer);
+			});
+
+			byte[] encoded = Arrays.copyOf(buffer.array(), buffer.position());
+
+			double decode = measure(() -> blackHole = QOIUtilAWT.readImage(encoded));
+
+			compare("encode." + kind, encode, baseline, tolerance, results, failures);
+			compare("decode." + kind, decode, baseline, tolerance, results, failures);
+		}
+
+		File output = new File("target", "perf-results.properties");
+
+		if (output.getParentFile().isDirectory()) {
+			try (OutputStream out = new FileOutputStream(output)) {
+				results.store(out, "Megapixels per second, " + WIDTH + " x " + HEIGHT + ", " +
+						System.getProperty("java.runtime.name") + " " + System.getProperty("java.runtime.version"));
+			}
+		}
+
+		Assertions.assertTrue(failures.isEmpty(), String.join("\n", failures));
+	}
+
+	private static void check(int type, @NonNull BufferedImage source, @NonNull QOIConversionPath writePath, @NonNull QOIConversionPath pixelDataPath) throws IOException {
+		check(SyntheticImages.copy(source, type), writePath, pixelDataPath);
+	}
+
+	private static void check(@NonNull BufferedImage image, @NonNull QOIConversionPath writePath, @NonNull QOIConversionPath pixelDataPath) throws IOException {
+		String message = "image type " + image.getType() + ", " + image.getColorModel();
+
+		Assertions.assertEquals(writePath, QOIImageWriter.getWritePath(image), message);
+		Assertions.assertEquals(pixelDataPath, QOIImageWriter.getPixelDataPath(image), message);
+
+		// Path reported by an actual write
+		QOIMetricsCollector metrics = new QOIMetricsCollector();
+
+		QOIImageWriter writer = (QOIImageWriter) new QOIImageWriterSPI().createWriterInstance(null);
+
+		try {
+			writer.setMetricsListener(metrics);
+			writer.setOutput(ByteBuffer.allocate((int) QOIImageWriter.getMaxEncodedSize(image.getWidth(), image.getHeight(), 4)));
+			writer.write(image);
+		} finally {
+			writer.dispose();
+		}
+
+		Assertions.assertEquals(1, metrics.getWrites().getImages(writePath), message);
+	}
+
+	private static void compare(@NonNull String key,
+	                            double measured,
+	                            @NonNull Properties baseline,
+	                            double tolerance,
+	                            @NonNull Properties results,
+	                            @NonNull List<String> failures) {
+		results.setProperty(key, String.format(Locale.ROOT, "%.1f", measured));
+
+		// Measurements without a baseline number are only reported
+		String expected = baseline.getProperty(key);
+
+		if (expected != null && measured < Double.parseDouble(expected) * (1 - tolerance)) {
+			failures.add(String.format(Locale.ROOT, "%s: %.1f MP/s is more than %.0f%% below baseline %s MP/s", key, measured, tolerance * 100, expected));
+		}
+	}
+
+	// Returns median throughput over several rounds in megapixels per second
+	private static double measure(@NonNull Timing.Task task) throws IOException {
+		double[] rounds = Timing.measure(WARM_UP_NANOS, ROUND_NANOS, ROUNDS, task);
+
+		Arrays.sort(rounds);
+
+		return WIDTH * HEIGHT / rounds[ROUNDS / 2] * 1000;
+	}
+
+}
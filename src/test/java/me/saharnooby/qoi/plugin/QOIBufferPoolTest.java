@@ -0,0 +1,127 @@
+package me.saharnooby.qoi.plugin;
+
+import me.saharnooby.qoi.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.*;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Objects;
+
+class QOIBufferPoolTest {
+
+	@Test
+	void testBuckets() {
+		QOIBufferPool pool = new QOIBufferPool(1 << 20);
+
+		byte[] bytes = pool.borrowBytes(3000);
+
+		Assertions.assertEquals(4096, bytes.length);
+
+		pool.release(bytes);
+
+		Assertions.assertEquals(4096, pool.getPooledBytes());
+		Assertions.assertSame(bytes, pool.borrowBytes(2049));
+		Assertions.assertEquals(0, pool.getPooledBytes());
+
+		int[] ints = pool.borrowInts(1000);
+
+		Assertions.assertEquals(1024, ints.length);
+
+		pool.release(ints);
+
+		Assertions.assertEquals(4096, pool.getPooledBytes());
+
+		// Buffers not created by the pool are not kept
+		pool.release(new byte[3000]);
+
+		Assertions.assertEquals(4096, pool.getPooledBytes());
+	}
+
+	@Test
+	void testMemoryCap() {
+		QOIBufferPool pool = new QOIBufferPool(10_000);
+
+		byte[] first = pool.borrowBytes(8192);
+		byte[] second = pool.borrowBytes(8192);
+
+		pool.release(first);
+		pool.release(second);
+
+		Assertions.assertEquals(8192, pool.getPooledBytes());
+		Assertions.assertSame(first, pool.borrowBytes(8192));
+		Assertions.assertNotSame(second, pool.borrowBytes(8192));
+	}
+
+	@Test
+	void testSharedByReaderAndWriter() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIBufferPoolTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		QOIBufferPool pool = new QOIBufferPool(16 * 1024 * 1024);
+
+		QOIImageWriter writer = (QOIImageWriter) ImageIO.getImageWritersByFormatName("QOI").next();
+		writer.setBufferPool(pool);
+
+		QOIImageReader reader = (QOIImageReader) ImageIO.getImageReadersByFormatName("QOI").next();
+		reader.setBufferPool(pool);
+
+		for (int i = 0; i < 3; i++) {
+			ImageWriteParam writeParam = writer.getDefaultWriteParam();
+			writeParam.setSourceRegion(new Rectangle(99, 89, 181, 173));
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+			try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+				writer.setOutput(output);
+				writer.write(null, new IIOImage(original, null, null), writeParam);
+			}
+
+			writer.reset();
+
+			ImageReadParam readParam = new ImageReadParam();
+			readParam.setSourceBands(new int[] {3, 2, 1, 0});
+
+			try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+				reader.setInput(input);
+
+				BufferedImage image = reader.read(0, readParam);
+
+				TestUtil.assertPixelsEqual(original.getSubimage(99, 89, 181, 173), swapBands(image), null);
+			}
+
+			reader.reset();
+
+			// Buffers are returned to the pool on reset
+			Assertions.assertTrue(pool.getPooledBytes() > 0);
+		}
+
+		writer.dispose();
+		reader.dispose();
+	}
+
+	// Reverses band order of an image read with source bands {3, 2, 1, 0}
+	private static BufferedImage swapBands(BufferedImage image) {
+		BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+
+		int[] pixel = new int[4];
+
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				image.getRaster().getPixel(x, y, pixel);
+
+				result.setRGB(x, y, (pixel[0] << 24) | (pixel[3] << 16) | (pixel[2] << 8) | pixel[1]);
+			}
+		}
+
+		return result;
+	}
+
+}
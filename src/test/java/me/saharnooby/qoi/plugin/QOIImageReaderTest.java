@@ -1,6 +1,7 @@
 package me.saharnooby.qoi.plugin;
 
 import lombok.NonNull;
+import me.saharnooby.qoi.QOIColorSpace;
 import me.saharnooby.qoi.QOIUtil;
 import me.saharnooby.qoi.QOIUtilAWT;
 import me.saharnooby.qoi.util.TestUtil;
@@ -8,14 +9,22 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.util.Objects;
+import java.nio.ByteBuffer;
+import java.util.*;
 
 /**
  * @author saharNooby
@@ -104,6 +113,540 @@ class QOIImageReaderTest {
 		}));
 	}
 
+	@Test
+	void testHeaderOnlyQueries() throws Exception {
+		BufferedImage original = new BufferedImage(37, 19, BufferedImage.TYPE_INT_ARGB);
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(qoi.toByteArray()));
+		ImageReader reader = getReader(in);
+
+		Assertions.assertEquals(37, reader.getWidth(0));
+		Assertions.assertEquals(19, reader.getHeight(0));
+		Assertions.assertEquals(4, reader.getImageTypes(0).next().getNumBands());
+
+		// Header queries must not consume the stream
+		Assertions.assertEquals(0, in.getStreamPosition());
+
+		TestUtil.assertPixelsEqual(original, reader.read(0, null), null);
+	}
+
+	@Test
+	void testImageMetadata() throws Exception {
+		BufferedImage original = new BufferedImage(37, 19, BufferedImage.TYPE_INT_RGB);
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtil.createFromPixelData(new byte[37 * 19 * 3], 37, 19, 3, QOIColorSpace.LINEAR), qoi);
+
+		ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(qoi.toByteArray()));
+		ImageReader reader = getReader(in);
+
+		Assertions.assertEquals(QOIMetadata.NATIVE_FORMAT_NAME, reader.getOriginatingProvider().getNativeImageMetadataFormatName());
+		Assertions.assertNotNull(reader.getOriginatingProvider().getImageMetadataFormat(QOIMetadata.NATIVE_FORMAT_NAME));
+
+		IIOMetadata metadata = reader.getImageMetadata(0);
+
+		// Metadata is read from the header alone
+		Assertions.assertEquals(0, in.getStreamPosition());
+
+		IIOMetadataNode header = (IIOMetadataNode) metadata.getAsTree(QOIMetadata.NATIVE_FORMAT_NAME).getFirstChild();
+
+		Assertions.assertEquals("37", header.getAttribute("width"));
+		Assertions.assertEquals("19", header.getAttribute("height"));
+		Assertions.assertEquals("3", header.getAttribute("channels"));
+		Assertions.assertEquals("linear", header.getAttribute("colorSpace"));
+
+		IIOMetadataNode standard = (IIOMetadataNode) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+
+		Assertions.assertEquals("3", ((IIOMetadataNode) standard.getElementsByTagName("NumChannels").item(0)).getAttribute("value"));
+		Assertions.assertEquals("1.0", ((IIOMetadataNode) standard.getElementsByTagName("Gamma").item(0)).getAttribute("value"));
+		Assertions.assertEquals("QOI", ((IIOMetadataNode) standard.getElementsByTagName("CompressionTypeName").item(0)).getAttribute("value"));
+		Assertions.assertEquals("none", ((IIOMetadataNode) standard.getElementsByTagName("Alpha").item(0)).getAttribute("value"));
+
+		TestUtil.assertPixelsEqual(original, reader.read(0, null), null);
+	}
+
+	@Test
+	void testMetrics() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		long pixels = (long) original.getWidth() * original.getHeight();
+
+		QOIMetricsCollector metrics = new QOIMetricsCollector();
+
+		QOIImageReader reader = (QOIImageReader) getReader(new ByteArrayInputStream(qoi.toByteArray()));
+		reader.setMetricsListener(metrics);
+
+		TestUtil.assertPixelsEqual(original, reader.read(0), null);
+
+		QOIMetricsCollector.Counters reads = metrics.getReads();
+
+		Assertions.assertEquals(1, reads.getImages());
+		Assertions.assertEquals(pixels, reads.getPixels());
+		Assertions.assertEquals(qoi.size(), reads.getBytes());
+		Assertions.assertEquals(1, reads.getImages(QOIConversionPath.DIRECT));
+		Assertions.assertTrue(reads.getIONanos() >= 0 && reads.getCodecNanos() >= 0);
+
+		// Decoded pixels are reused, so no bytes are read
+		reader.read(0);
+
+		Assertions.assertEquals(2, reads.getImages());
+		Assertions.assertEquals(2 * pixels, reads.getPixels());
+		Assertions.assertEquals(qoi.size(), reads.getBytes());
+
+		// Reordered bands are copied through the raster
+		ImageReadParam param = new ImageReadParam();
+		param.setSourceBands(original.getColorModel().hasAlpha() ? new int[] {2, 1, 0, 3} : new int[] {2, 1, 0});
+
+		reader.read(0, param);
+
+		Assertions.assertEquals(3, reads.getImages());
+		Assertions.assertEquals(3 * pixels, reads.getPixels());
+		Assertions.assertEquals(1, reads.getImages(QOIConversionPath.RASTER));
+		Assertions.assertTrue(reads.getBytes() > qoi.size() && reads.getBytes() <= 2L * qoi.size());
+
+		Assertions.assertEquals(0, metrics.getWrites().getImages());
+
+		reader.dispose();
+	}
+
+	@Test
+	void testSourceRegionStopsReadingAfterLastRow() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		// Truncated stream: reading past the first rows would fail with EOFException
+		byte[] truncated = Arrays.copyOf(qoi.toByteArray(), qoi.size() / 4);
+
+		ImageReadParam param = new ImageReadParam();
+		param.setSourceRegion(new Rectangle(0, 0, original.getWidth(), 20));
+
+		BufferedImage strip = getReader(new ByteArrayInputStream(truncated)).read(0, param);
+
+		TestUtil.assertPixelsEqual(original.getSubimage(0, 0, original.getWidth(), 20), strip, null);
+	}
+
+	@Test
+	void testTrailingDataIsPreserved() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		int imageSize = qoi.size();
+
+		byte[] trailer = "Container data after the image".getBytes("UTF-8");
+		qoi.write(trailer);
+
+		ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(qoi.toByteArray()));
+
+		TestUtil.assertPixelsEqual(original, getReader(input).read(0), null);
+
+		// Read-ahead bytes are given back to the stream
+		Assertions.assertEquals(imageSize, input.getStreamPosition());
+
+		byte[] actual = new byte[trailer.length];
+		input.readFully(actual);
+
+		Assertions.assertArrayEquals(trailer, actual);
+	}
+
+	@Test
+	void testFileAndBufferInputs() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		File file = File.createTempFile("dice", ".qoi");
+
+		try {
+			try (OutputStream out = new FileOutputStream(file)) {
+				qoi.writeTo(out);
+			}
+
+			// Image data does not start at the beginning of the buffer
+			ByteBuffer buffer = ByteBuffer.allocate(qoi.size() + 10);
+			buffer.position(10);
+			buffer.put(qoi.toByteArray());
+			buffer.position(10);
+
+			ImageReadParam param = new ImageReadParam();
+			param.setSourceRegion(new Rectangle(10, 20, 30, 40));
+
+			for (Object input : Arrays.asList(file, file.toPath(), buffer, qoi.toByteArray())) {
+				ImageReader reader = ImageIO.getImageReaders(input).next();
+				reader.setInput(input);
+
+				TestUtil.assertPixelsEqual(original, reader.read(0), null);
+				TestUtil.assertPixelsEqual(original.getSubimage(10, 20, 30, 40), reader.read(0, param), null);
+
+				reader.dispose();
+			}
+
+			Assertions.assertEquals(10, buffer.position());
+
+			TestUtil.assertPixelsEqual(original, QOIUtilAWT.readImage(file.toPath()), null);
+		} finally {
+			Assertions.assertTrue(file.delete() || !file.exists());
+		}
+	}
+
+	@Test
+	void testInputStreamInput() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		// Two frames, the second one is read through a source region
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		ImageReader reader = ImageIO.getImageReadersByFormatName("QOI").next();
+		reader.setInput(new ByteArrayInputStream(qoi.toByteArray()), true);
+
+		ImageReadParam param = new ImageReadParam();
+		param.setSourceRegion(new Rectangle(10, 20, 30, 40));
+
+		TestUtil.assertPixelsEqual(original, reader.read(0), null);
+		TestUtil.assertPixelsEqual(original.getSubimage(10, 20, 30, 40), reader.read(1, param), null);
+
+		reader.dispose();
+
+		TestUtil.assertPixelsEqual(original, QOIUtilAWT.readImage(new ByteArrayInputStream(qoi.toByteArray())), null);
+		TestUtil.assertPixelsEqual(original, QOIUtilAWT.readImage(qoi.toByteArray()), null);
+	}
+
+	@Test
+	void testRowIndex() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		int width = original.getWidth();
+		int height = original.getHeight();
+
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("QOI").next();
+
+		QOIImageWriteParam writeParam = (QOIImageWriteParam) writer.getDefaultWriteParam();
+		writeParam.setRowIndexInterval(7);
+
+		ByteArrayOutputStream indexed = new ByteArrayOutputStream();
+
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(indexed)) {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(original, null, null), writeParam);
+		}
+
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), plain);
+
+		// Index is appended after the image, so other decoders are not affected
+		Assertions.assertArrayEquals(plain.toByteArray(), Arrays.copyOf(indexed.toByteArray(), plain.size()));
+		TestUtil.assertPixelsEqual(original, QOIUtilAWT.convertToBufferedImage(QOIUtil.readImage(new ByteArrayInputStream(indexed.toByteArray()))), null);
+
+		// Chunks of the upper half are destroyed, rows below can only be decoded from checkpoints
+		byte[] damaged = indexed.toByteArray();
+		Arrays.fill(damaged, 14, plain.size() / 2, (byte) 0xFF);
+
+		ImageReadParam param = new ImageReadParam();
+		param.setSourceRegion(new Rectangle(10, height - 60, 50, 40));
+		param.setSourceSubsampling(1, 3, 0, 1);
+
+		BufferedImage expected = getReader(new ByteArrayInputStream(plain.toByteArray())).read(0, param);
+
+		ImageReader reader = ImageIO.getImageReaders(damaged).next();
+		reader.setInput(damaged);
+
+		TestUtil.assertPixelsEqual(expected, reader.read(0, param), null);
+
+		// Same index kept in a separate file
+		ByteArrayOutputStream sidecar = new ByteArrayOutputStream();
+		QOIRowIndex.build(plain.toByteArray(), 16).write(sidecar);
+
+		byte[] damagedPlain = plain.toByteArray();
+		Arrays.fill(damagedPlain, 14, plain.size() / 2, (byte) 0xFF);
+
+		QOIRowIndex rowIndex = QOIRowIndex.read(new ByteArrayInputStream(sidecar.toByteArray()));
+
+		Assertions.assertEquals((height - 1) / 16, rowIndex.getCheckpointCount());
+		Assertions.assertEquals(rowIndex.getSize(), sidecar.size());
+
+		reader.setInput(damagedPlain);
+		((QOIImageReader) reader).setRowIndex(rowIndex);
+
+		TestUtil.assertPixelsEqual(expected, reader.read(0, param), null);
+
+		// Stripes between checkpoints are decoded in parallel when there are enough cores
+		System.setProperty("qoi.parallelConversionThreshold", "1");
+
+		try {
+			reader.setInput(indexed.toByteArray());
+
+			TestUtil.assertPixelsEqual(original, reader.read(0), null);
+
+			reader.setInput(plain.toByteArray());
+			((QOIImageReader) reader).setRowIndex(rowIndex);
+
+			TestUtil.assertPixelsEqual(original, reader.read(0), null);
+		} finally {
+			System.clearProperty("qoi.parallelConversionThreshold");
+		}
+
+		// Frames of a sequence are found past indices of preceding frames
+		ByteArrayOutputStream sequence = new ByteArrayOutputStream();
+
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(sequence)) {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			writer.writeToSequence(new IIOImage(original, null, null), writeParam);
+			writer.writeToSequence(new IIOImage(original.getSubimage(0, 0, width, height / 2), null, null), writeParam);
+			writer.endWriteSequence();
+		}
+
+		reader.setInput(sequence.toByteArray());
+
+		Assertions.assertEquals(2, reader.getNumImages(true));
+
+		ImageReadParam regionParam = new ImageReadParam();
+		regionParam.setSourceRegion(new Rectangle(10, 20, 30, 40));
+
+		TestUtil.assertPixelsEqual(original.getSubimage(10, 20, 30, 40), reader.read(1, regionParam), null);
+		TestUtil.assertPixelsEqual(original, reader.read(0), null);
+
+		// Index of a frame that is not the last one is found once the end of the frame is known
+		byte[] sequenceBytes = sequence.toByteArray();
+
+		ImageReader sequenceReader = ImageIO.getImageReaders(sequenceBytes).next();
+		sequenceReader.setInput(sequenceBytes);
+
+		TestUtil.assertPixelsEqual(expected, sequenceReader.read(0, param), null);
+
+		Assertions.assertEquals(2, sequenceReader.getNumImages(true));
+
+		// Arrays are read in place, so the next read sees the damage
+		Arrays.fill(sequenceBytes, 14, plain.size() / 2, (byte) 0xFF);
+
+		TestUtil.assertPixelsEqual(expected, sequenceReader.read(0, param), null);
+
+		sequenceReader.dispose();
+		reader.dispose();
+		writer.dispose();
+	}
+
+	@Test
+	void testMalformedRowIndex() throws Exception {
+		BufferedImage original = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 4; x++) {
+				original.setRGB(x, y, x * 0x400000 + y * 0x4000);
+			}
+		}
+
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), plain);
+
+		ImageReadParam param = new ImageReadParam();
+		param.setSourceRegion(new Rectangle(0, 2, 4, 2));
+
+		BufferedImage expected = original.getSubimage(0, 2, 4, 2);
+
+		// Block size claims almost 2 GiB
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(plain.toByteArray());
+		out.write(new byte[] {'q', 'o', 'i', 'x', 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0});
+
+		assertIndexIgnored(out.toByteArray(), param, expected);
+
+		// Skip of the first checkpoint is out of range
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("QOI").next();
+
+		QOIImageWriteParam writeParam = (QOIImageWriteParam) writer.getDefaultWriteParam();
+		writeParam.setRowIndexInterval(1);
+
+		out.reset();
+
+		try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(original, null, null), writeParam);
+		}
+
+		writer.dispose();
+
+		byte[] indexed = out.toByteArray();
+		indexed[plain.size() + 32 + 12] = 0x7F;
+
+		assertIndexIgnored(indexed, param, expected);
+	}
+
+	// Appended indices are optional, so a damaged one is ignored
+	private void assertIndexIgnored(byte @NonNull [] bytes, @NonNull ImageReadParam param, @NonNull BufferedImage expected) throws IOException {
+		// Length of the input is known
+		ImageReader reader = ImageIO.getImageReaders(bytes).next();
+		reader.setInput(bytes);
+
+		Assertions.assertEquals(1, reader.getNumImages(true));
+		TestUtil.assertPixelsEqual(expected, reader.read(0, param), null);
+
+		reader.dispose();
+
+		// Length of the input is not known
+		ImageReader streamReader = getReader(new ByteArrayInputStream(bytes));
+
+		Assertions.assertEquals(1, streamReader.getNumImages(true));
+		TestUtil.assertPixelsEqual(expected, streamReader.read(0, param), null);
+
+		streamReader.dispose();
+	}
+
+	@Test
+	void testMalformedStripeTable() throws Exception {
+		// Header of a 1 x 0x7FFFFFF0 container, its stripe count and the size of the first stripe
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeBytes("qois");
+		data.writeInt(1);
+		data.writeInt(0x7FFFFFF0);
+		data.write(3);
+		data.write(0);
+		data.writeInt(0x7FFFFFF0);
+		data.writeLong(32);
+
+		byte[] bytes = out.toByteArray();
+
+		Assertions.assertEquals(26, bytes.length);
+
+		ImageReader reader = ImageIO.getImageReaders(bytes).next();
+		reader.setInput(bytes);
+
+		Assertions.assertThrows(IIOException.class, () -> reader.getNumImages(true));
+
+		ImageReader streamReader = getReader(new ByteArrayInputStream(bytes));
+
+		Assertions.assertThrows(EOFException.class, () -> streamReader.getNumImages(true));
+
+		// Table of a single stripe fits, but the stripe does not
+		out.reset();
+		data.writeBytes("qois");
+		data.writeInt(1);
+		data.writeInt(1);
+		data.write(3);
+		data.write(0);
+		data.writeInt(1);
+		data.writeLong(0x7FFFFFF0);
+
+		byte[] oneStripe = out.toByteArray();
+
+		reader.setInput(oneStripe);
+
+		Assertions.assertThrows(IIOException.class, () -> reader.read(0));
+
+		streamReader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(oneStripe)));
+
+		Assertions.assertThrows(EOFException.class, () -> streamReader.read(0));
+
+		reader.dispose();
+		streamReader.dispose();
+	}
+
+	@Test
+	void testPackedIntDestinationTypes() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		Iterator<ImageTypeSpecifier> types = getReader(new ByteArrayInputStream(qoi.toByteArray())).getImageTypes(0);
+
+		Set<Integer> packedTypes = new HashSet<>();
+
+		while (types.hasNext()) {
+			ImageTypeSpecifier type = types.next();
+
+			if (type.getBufferedImageType() == BufferedImage.TYPE_CUSTOM) {
+				continue;
+			}
+
+			packedTypes.add(type.getBufferedImageType());
+
+			for (int subsampling = 1; subsampling <= 3; subsampling++) {
+				ImageReadParam param = new ImageReadParam();
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+				BufferedImage defaultType = getReader(new ByteArrayInputStream(qoi.toByteArray())).read(0, param);
+
+				param.setDestinationType(type);
+
+				BufferedImage actual = getReader(new ByteArrayInputStream(qoi.toByteArray())).read(0, param);
+
+				Assertions.assertEquals(type.getBufferedImageType(), actual.getType());
+
+				// Java2D conversion is the reference, including premultiplication
+				BufferedImage expected = new BufferedImage(actual.getWidth(), actual.getHeight(), actual.getType());
+
+				Graphics2D g = expected.createGraphics();
+				g.setComposite(AlphaComposite.Src);
+				g.drawImage(defaultType, 0, 0, null);
+				g.dispose();
+
+				TestUtil.assertPixelsEqual(expected, actual, "type " + type.getBufferedImageType() + ", subsampling " + subsampling);
+			}
+		}
+
+		Assertions.assertEquals(new HashSet<>(Arrays.asList(BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE)), packedTypes);
+	}
+
+	@Test
+	void testReusedDestination() throws Exception {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		QOIUtil.writeImage(QOIUtilAWT.createFromBufferedImage(original), qoi);
+
+		Iterator<ImageTypeSpecifier> types = getReader(new ByteArrayInputStream(qoi.toByteArray())).getImageTypes(0);
+
+		while (types.hasNext()) {
+			BufferedImage dest = types.next().createBufferedImage(original.getWidth(), original.getHeight());
+
+			ImageReadParam param = new ImageReadParam();
+			param.setDestination(dest);
+
+			// Same reader, same destination; like decoding frames in a loop
+			ImageReader reader = getReader(new ByteArrayInputStream(qoi.toByteArray()));
+
+			for (int i = 0; i < 3; i++) {
+				reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(qoi.toByteArray())));
+
+				Assertions.assertSame(dest, reader.read(0, param));
+
+				if (!dest.isAlphaPremultiplied()) {
+					TestUtil.assertPixelsEqual(original, dest, "type " + dest.getType());
+				}
+			}
+		}
+	}
+
 	@FunctionalInterface
 	private interface ImageSupplier {
 
@@ -136,7 +679,10 @@ class QOIImageReaderTest {
 	}
 
 	private ImageReader getReader(@NonNull InputStream input) throws IOException {
-		ImageInputStream in = ImageIO.createImageInputStream(input);
+		return getReader(ImageIO.createImageInputStream(input));
+	}
+
+	private ImageReader getReader(@NonNull ImageInputStream in) {
 		ImageReader reader = ImageIO.getImageReaders(in).next();
 		reader.setInput(in);
 		return reader;
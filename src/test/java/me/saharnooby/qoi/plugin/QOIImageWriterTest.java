@@ -1,20 +1,29 @@
 package me.saharnooby.qoi.plugin;
 
 import lombok.NonNull;
+import me.saharnooby.qoi.QOIColorSpace;
 import me.saharnooby.qoi.QOIUtil;
 import me.saharnooby.qoi.QOIUtilAWT;
 import me.saharnooby.qoi.util.TestUtil;
+import me.saharnooby.qoi.util.TiledImage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import javax.imageio.*;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.function.Consumer;
@@ -59,6 +68,419 @@ class QOIImageWriterTest {
 		});
 	}
 
+	@Test
+	void testSubimages() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		for (int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR}) {
+			BufferedImage copy = new BufferedImage(original.getWidth(), original.getHeight(), type);
+
+			Graphics g = copy.getGraphics();
+			g.drawImage(original, 0, 0, null);
+			g.dispose();
+
+			// Rows of a subimage are not adjacent in the data buffer
+			test(copy.getSubimage(99, 89, 181, 173), param -> {});
+		}
+	}
+
+	@Test
+	void testTiledRenderedImage() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		for (Consumer<ImageWriteParam> setup : Arrays.<Consumer<ImageWriteParam>>asList(param -> {}, param -> {
+			param.setSourceRegion(new Rectangle(99, 89, 181, 173));
+			param.setSourceSubsampling(2, 3, 1, 2);
+		})) {
+			byte[] expected = write(original, "QOI", setup);
+			// Tile size is not a divisor of image size on purpose
+			byte[] actual = write(new TiledImage(original, 96, 70), "QOI", setup);
+
+			Assertions.assertArrayEquals(expected, actual);
+		}
+	}
+
+	@Test
+	void testSequence() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		BufferedImage[] frames = {
+				original,
+				original.getSubimage(99, 89, 181, 173),
+				new BufferedImage(31, 17, BufferedImage.TYPE_INT_RGB)
+		};
+
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("QOI").next();
+
+		Assertions.assertTrue(writer.canWriteSequence());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		ImageOutputStream output = ImageIO.createImageOutputStream(out);
+		writer.setOutput(output);
+		writer.prepareWriteSequence(null);
+
+		for (BufferedImage frame : frames) {
+			writer.writeToSequence(new IIOImage(frame, null, null), null);
+		}
+
+		writer.endWriteSequence();
+		writer.dispose();
+		output.flush();
+
+		byte[] data = out.toByteArray();
+
+		// The first frame is a valid standalone QOI image
+		TestUtil.assertPixelsEqual(original, QOIUtilAWT.convertToBufferedImage(QOIUtil.readImage(new ByteArrayInputStream(data))), null);
+
+		ImageReader reader = ImageIO.getImageReadersByFormatName("QOI").next();
+		reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(data)));
+
+		Assertions.assertEquals(-1, reader.getNumImages(false));
+
+		// Random access
+		TestUtil.assertPixelsEqual(frames[2], reader.read(2), null);
+		TestUtil.assertPixelsEqual(frames[0], reader.read(0), null);
+		Assertions.assertEquals(frames.length, reader.getNumImages(true));
+		Assertions.assertEquals(frames[1].getWidth(), reader.getWidth(1));
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> reader.read(3));
+
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setSourceRegion(new Rectangle(10, 20, 30, 40));
+
+		TestUtil.assertPixelsEqual(frames[1].getSubimage(10, 20, 30, 40), reader.read(1, param), null);
+
+		// Sequential access
+		reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(data)), true);
+
+		for (int i = 0; i < frames.length; i++) {
+			TestUtil.assertPixelsEqual(frames[i], reader.read(i), null);
+		}
+
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> reader.read(0));
+
+		reader.dispose();
+	}
+
+	@Test
+	void testChannelAndBufferOutputs() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		byte[] expected = write(original, "QOI", param -> {});
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		QOIUtilAWT.writeImage(original, Channels.newChannel(out));
+
+		Assertions.assertArrayEquals(expected, out.toByteArray());
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) QOIImageWriter.getMaxEncodedSize(original.getWidth(), original.getHeight(), 4));
+		buffer.position(3);
+
+		QOIUtilAWT.writeImage(original, buffer);
+
+		Assertions.assertEquals(3 + expected.length, buffer.position());
+
+		byte[] actual = new byte[expected.length];
+		buffer.position(3);
+		buffer.get(actual);
+
+		Assertions.assertArrayEquals(expected, actual);
+
+		// Partially written data is discarded
+		ByteBuffer small = ByteBuffer.allocate(expected.length + 1);
+		small.position(2);
+
+		Assertions.assertThrows(IIOException.class, () -> QOIUtilAWT.writeImage(original, small));
+		Assertions.assertEquals(2, small.position());
+	}
+
+	@Test
+	void testStripes() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		for (Consumer<ImageWriteParam> setup : Arrays.<Consumer<ImageWriteParam>>asList(param -> {}, param -> {
+			param.setSourceRegion(new Rectangle(99, 89, 181, 173));
+			param.setSourceSubsampling(2, 3, 1, 2);
+		})) {
+			byte[] plain = write(original, "QOI", setup);
+
+			BufferedImage expected = QOIUtilAWT.convertToBufferedImage(QOIUtil.readImage(new ByteArrayInputStream(plain)));
+
+			// Region crosses stripe boundaries
+			ImageReadParam regionParam = new ImageReadParam();
+			regionParam.setSourceRegion(new Rectangle(10, 20, 30, expected.getHeight() - 30));
+			regionParam.setSourceSubsampling(1, 2, 0, 1);
+
+			ImageReader reader = ImageIO.getImageReadersByFormatName("QOI").next();
+
+			reader.setInput(plain);
+
+			BufferedImage expectedRegion = reader.read(0, regionParam);
+
+			// Height is not a multiple of stripe count on purpose
+			for (int stripeCount : new int[] {1, 4, 7}) {
+				Consumer<ImageWriteParam> stripes = param -> {
+					setup.accept(param);
+
+					((QOIImageWriteParam) param).setStripeCount(stripeCount);
+				};
+
+				byte[] striped = write(original, "QOI", stripes);
+
+				Assertions.assertEquals('s', striped[3]);
+				Assertions.assertArrayEquals(striped, write(new TiledImage(original, 96, 70), "QOI", stripes));
+
+				TestUtil.assertPixelsEqual(expected, ImageIO.read(new ByteArrayInputStream(striped)), null);
+				TestUtil.assertPixelsEqual(expected, QOIUtilAWT.readImage(striped), null);
+
+				// Two containers one after another form a sequence
+				ByteArrayOutputStream sequence = new ByteArrayOutputStream();
+				sequence.write(striped);
+				sequence.write(striped);
+
+				reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(sequence.toByteArray())));
+
+				Assertions.assertEquals(2, reader.getNumImages(true));
+
+				TestUtil.assertPixelsEqual(expected, reader.read(1), null);
+				TestUtil.assertPixelsEqual(expectedRegion, reader.read(0, regionParam), null);
+				TestUtil.assertPixelsEqual(expectedRegion, reader.read(1, regionParam), null);
+			}
+
+			reader.dispose();
+		}
+	}
+
+	@Test
+	void testMetadata() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		ImageInputStream pngInput = ImageIO.createImageInputStream(in);
+
+		ImageReader pngReader = ImageIO.getImageReaders(pngInput).next();
+		pngReader.setInput(pngInput);
+
+		BufferedImage original = pngReader.read(0);
+		IIOMetadata pngMetadata = pngReader.getImageMetadata(0);
+
+		pngReader.dispose();
+
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("QOI").next();
+
+		ImageTypeSpecifier type = ImageTypeSpecifier.createFromRenderedImage(original);
+
+		QOIMetadata defaults = (QOIMetadata) writer.getDefaultImageMetadata(type, null);
+
+		Assertions.assertEquals(4, defaults.getChannels());
+		Assertions.assertEquals(QOIColorSpace.SRGB, defaults.getColorSpace());
+
+		// Standard metadata of other formats is converted
+		QOIMetadata converted = (QOIMetadata) writer.convertImageMetadata(pngMetadata, type, null);
+
+		Assertions.assertEquals(4, converted.getChannels());
+
+		// Alpha is dropped when writing 3 channels, with or without stripes
+		for (int stripeCount : new int[] {0, 3}) {
+			Consumer<ImageWriteParam> stripes = param -> ((QOIImageWriteParam) param).setStripeCount(stripeCount);
+
+			QOIMetadata metadata = (QOIMetadata) writer.getDefaultImageMetadata(type, null);
+			metadata.setChannels(3);
+
+			byte[] qoi = write(original, "QOI", stripes, metadata);
+
+			Assertions.assertEquals(3, qoi[12]);
+			Assertions.assertEquals(0, qoi[13]);
+
+			BufferedImage opaque = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_INT_RGB);
+
+			for (int y = 0; y < original.getHeight(); y++) {
+				for (int x = 0; x < original.getWidth(); x++) {
+					opaque.setRGB(x, y, original.getRGB(x, y));
+				}
+			}
+
+			TestUtil.assertPixelsEqual(opaque, QOIUtilAWT.readImage(qoi), null);
+
+			// Opaque images get alpha of 255 when writing 4 channels
+			metadata.setChannels(4);
+
+			byte[] withAlpha = write(opaque, "QOI", stripes, metadata);
+
+			Assertions.assertEquals(4, withAlpha[12]);
+
+			TestUtil.assertPixelsEqual(opaque, QOIUtilAWT.readImage(withAlpha), null);
+
+			// Color space is written as is, pixel values are not converted
+			metadata.setColorSpace(QOIColorSpace.LINEAR);
+
+			byte[] linear = write(opaque, "QOI", stripes, metadata);
+
+			Assertions.assertEquals(1, linear[13]);
+
+			ImageReader reader = ImageIO.getImageReadersByFormatName("QOI").next();
+			reader.setInput(withAlpha);
+
+			byte[] expectedData = ((DataBufferByte) reader.read(0).getRaster().getDataBuffer()).getData();
+
+			reader.setInput(linear);
+
+			Assertions.assertArrayEquals(expectedData, ((DataBufferByte) reader.read(0).getRaster().getDataBuffer()).getData());
+
+			// Metadata read from the output is written back as is
+
+			Assertions.assertArrayEquals(linear, write(opaque, "QOI", stripes, reader.getImageMetadata(0)));
+
+			reader.dispose();
+		}
+
+		writer.dispose();
+	}
+
+	@Test
+	void testMetrics() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		QOIMetricsCollector metrics = new QOIMetricsCollector();
+
+		QOIImageWriter writer = (QOIImageWriter) ImageIO.getImageWritersByFormatName("QOI").next();
+		writer.setMetricsListener(metrics);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		ImageOutputStream output = ImageIO.createImageOutputStream(out);
+		writer.setOutput(output);
+		writer.write(original);
+
+		QOIMetricsCollector.Counters writes = metrics.getWrites();
+
+		Assertions.assertEquals(1, writes.getImages());
+		Assertions.assertEquals((long) original.getWidth() * original.getHeight(), writes.getPixels());
+		Assertions.assertEquals(out.size(), writes.getBytes());
+		Assertions.assertEquals(1, writes.getImages(QOIImageWriter.getWritePath(original)));
+		Assertions.assertTrue(writes.getIONanos() >= 0 && writes.getCodecNanos() >= 0 && writes.getConversionNanos() >= 0);
+
+		// Source region is copied through the raster
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setSourceRegion(new Rectangle(10, 20, 30, 40));
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) QOIImageWriter.getMaxEncodedSize(30, 40, 4));
+
+		writer.setOutput(buffer);
+		writer.write(null, new IIOImage(original, null, null), param);
+
+		Assertions.assertEquals(2, writes.getImages());
+		Assertions.assertEquals((long) original.getWidth() * original.getHeight() + 30 * 40, writes.getPixels());
+		Assertions.assertEquals(out.size() + buffer.position(), writes.getBytes());
+		Assertions.assertEquals(1, writes.getImages(QOIConversionPath.RASTER));
+
+		Assertions.assertEquals(0, metrics.getReads().getImages());
+
+		// Nothing is reported without a listener
+		writer.setMetricsListener(null);
+		writer.setOutput(ByteBuffer.allocate((int) QOIImageWriter.getMaxEncodedSize(30, 40, 4)));
+		writer.write(null, new IIOImage(original, null, null), param);
+
+		Assertions.assertEquals(2, writes.getImages());
+
+		writes.reset();
+
+		Assertions.assertEquals(0, writes.getImages());
+		Assertions.assertEquals(0, writes.getBytes());
+		Assertions.assertEquals(0, writes.getImages(QOIConversionPath.RASTER));
+
+		writer.dispose();
+	}
+
+	@Test
+	void testStatistics() throws IOException {
+		InputStream in = Objects.requireNonNull(QOIImageReaderTest.class.getResourceAsStream("/dice.png"), "Test image not found");
+
+		BufferedImage original = Objects.requireNonNull(ImageIO.read(in), "Test image is invalid");
+
+		long pixels = (long) original.getWidth() * original.getHeight();
+
+		QOIImageWriter writer = (QOIImageWriter) ImageIO.getImageWritersByFormatName("QOI").next();
+
+		Assertions.assertNull(writer.getStatistics());
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) QOIImageWriter.getMaxEncodedSize(original.getWidth(), original.getHeight(), 4) + 4096);
+
+		writer.setOutput(buffer);
+		writer.write(original);
+
+		QOIEncoderStatistics statistics = writer.getStatistics();
+
+		byte[] data = Arrays.copyOf(buffer.array(), buffer.position());
+
+		// Counts match chunks found in the output
+		long[] expected = countChunks(data);
+
+		for (QOIOpcode opcode : QOIOpcode.values()) {
+			Assertions.assertEquals(expected[opcode.ordinal()], statistics.getChunks(opcode), opcode.name());
+			Assertions.assertEquals(expected[opcode.ordinal()] * opcode.getChunkSize(), statistics.getBytes(opcode), opcode.name());
+		}
+
+		Assertions.assertEquals(pixels, statistics.getPixels());
+		Assertions.assertEquals(data.length - 14 - 8, statistics.getBytes());
+		Assertions.assertTrue(statistics.getChunks(QOIOpcode.RUN) > 0);
+		Assertions.assertEquals((double) statistics.getRunPixels() / statistics.getChunks(QOIOpcode.RUN), statistics.getAverageRunLength());
+		Assertions.assertTrue(statistics.getAverageRunLength() >= 1 && statistics.getAverageRunLength() <= 62);
+
+		// Counts of stripes are summed
+		QOIImageWriteParam param = (QOIImageWriteParam) writer.getDefaultWriteParam();
+		param.setStripeCount(4);
+
+		buffer.clear();
+
+		writer.write(null, new IIOImage(original, null, null), param);
+
+		QOIEncoderStatistics striped = writer.getStatistics();
+
+		Assertions.assertEquals(pixels, striped.getPixels());
+		Assertions.assertEquals(pixels, striped.getRunPixels() + striped.getChunks() - striped.getChunks(QOIOpcode.RUN));
+		Assertions.assertTrue(striped.getBytes() < buffer.position());
+
+		writer.dispose();
+	}
+
+	// Counts chunks of a QOI image without a row index by opcode ordinal
+	private static long[] countChunks(byte @NonNull [] data) {
+		long[] counts = new long[QOIOpcode.values().length];
+
+		for (int i = 14; i < data.length - 8; ) {
+			int tag = data[i] & 0xFF;
+
+			QOIOpcode opcode;
+
+			if (tag == 0xFE) {
+				opcode = QOIOpcode.RGB;
+			} else if (tag == 0xFF) {
+				opcode = QOIOpcode.RGBA;
+			} else {
+				opcode = new QOIOpcode[] {QOIOpcode.INDEX, QOIOpcode.DIFF, QOIOpcode.LUMA, QOIOpcode.RUN}[tag >> 6];
+			}
+
+			counts[opcode.ordinal()]++;
+
+			i += opcode.getChunkSize();
+		}
+
+		return counts;
+	}
+
 	@Test
 	void testUnsupportedImageTypes() {
 		// For now we support only 3 or 4 channel, 8-bit per channel images.
@@ -89,7 +511,11 @@ class QOIImageWriterTest {
 		TestUtil.assertPixelsEqual(pngImage, qoiImage, null);
 	}
 
-	private static byte[] write(@NonNull BufferedImage image, @NonNull String format, @NonNull Consumer<ImageWriteParam> setup) throws IOException {
+	private static byte[] write(@NonNull RenderedImage image, @NonNull String format, @NonNull Consumer<ImageWriteParam> setup) throws IOException {
+		return write(image, format, setup, null);
+	}
+
+	private static byte[] write(@NonNull RenderedImage image, @NonNull String format, @NonNull Consumer<ImageWriteParam> setup, IIOMetadata metadata) throws IOException {
 		Iterator<ImageWriter> iterator = ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), format);
 
 		if (!iterator.hasNext()) {
@@ -106,7 +532,7 @@ class QOIImageWriterTest {
 
 		ImageOutputStream output = ImageIO.createImageOutputStream(out);
 		writer.setOutput(output);
-		writer.write(null, new IIOImage(image, null, null), param);
+		writer.write(null, new IIOImage(image, null, metadata), param);
 		writer.dispose();
 		output.flush();
 
@@ -0,0 +1,208 @@
+package me.saharnooby.qoi.util;
+
+import lombok.NonNull;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.util.Random;
+
+/**
+ * Generates deterministic images similar to real content, so benchmarks and performance checks need no image corpus.
+ */
+public final class SyntheticImages {
+
+	public enum Kind {
+
+		// Smooth shapes with sensor-like noise, compresses poorly
+		PHOTO,
+		// Flat panels, text and a gradient, like a desktop screenshot
+		SCREENSHOT,
+		// Smooth gradients, mostly DIFF and LUMA chunks
+		GRADIENT,
+		// Antialiased shapes on a transparent background
+		SPRITES
+
+	}
+
+	private SyntheticImages() {
+
+	}
+
+	/**
+	 * Creates an image of the specified kind; sprites are {@code TYPE_INT_ARGB}, other kinds are {@code TYPE_INT_RGB}.
+	 */
+	public static BufferedImage create(@NonNull Kind kind, int width, int height) {
+		switch (kind) {
+			case PHOTO:
+				return createPhoto(width, height);
+			case SCREENSHOT:
+				return createScreenshot(width, height);
+			case GRADIENT:
+				return createGradient(width, height);
+			case SPRITES:
+				return createSprites(width, height);
+			default:
+				throw new IllegalArgumentException(kind.name());
+		}
+	}
+
+	/**
+	 * Returns a copy of the image with the specified {@link BufferedImage} type.
+	 */
+	public static BufferedImage copy(@NonNull BufferedImage image, int type) {
+		BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+
+		Graphics2D g = copy.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the image with pixels stored as interleaved RGB or RGBA bytes, which QOI encodes without conversion.
+	 */
+	public static BufferedImage copyInterleaved(@NonNull BufferedImage image, boolean alpha) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		ColorModel colorModel = new ComponentColorModel(
+				ColorSpace.getInstance(ColorSpace.CS_sRGB),
+				alpha,
+				false,
+				alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE,
+				DataBuffer.TYPE_BYTE
+		);
+
+		int[] offsets = alpha ? new int[] {0, 1, 2, 3} : new int[] {0, 1, 2};
+
+		WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, width * offsets.length, offsets.length, offsets, null);
+
+		BufferedImage copy = new BufferedImage(colorModel, raster, false, null);
+
+		Graphics2D g = copy.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+
+		return copy;
+	}
+
+	private static BufferedImage createPhoto(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+		Random random = new Random(1);
+
+		int[] row = new int[width];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double u = x / (double) width;
+				double v = y / (double) height;
+
+				int r = 128 + (int) (80 * Math.sin(u * 7 + v * 3)) + random.nextInt(9) - 4;
+				int g = 110 + (int) (70 * Math.sin(u * 4 - v * 5 + 1)) + random.nextInt(9) - 4;
+				int b = 90 + (int) (60 * Math.cos(u * 3 + v * 8)) + random.nextInt(9) - 4;
+
+				row[x] = (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+			}
+
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+
+		return image;
+	}
+
+	private static BufferedImage createScreenshot(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+		Graphics2D g = image.createGraphics();
+
+		g.setPaint(new GradientPaint(0, 0, new Color(30, 60, 120), width, height, new Color(200, 120, 40)));
+		g.fillRect(0, 0, width, height);
+
+		Random random = new Random(1);
+
+		int panelWidth = Math.max(1, Math.min(400, width / 2));
+		int panelHeight = Math.max(1, Math.min(300, height / 2));
+
+		g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+
+		for (int i = 0; i < 40; i++) {
+			int x = random.nextInt(width - panelWidth + 1);
+			int y = random.nextInt(height - panelHeight + 1);
+
+			g.setColor(new Color(random.nextInt(0x1000000)));
+			g.fillRect(x, y, panelWidth, panelHeight);
+
+			g.setColor(Color.WHITE);
+			g.fillRect(x, y, panelWidth, Math.min(24, panelHeight));
+
+			g.setColor(Color.BLACK);
+
+			for (int line = 0; line < 10; line++) {
+				g.drawString(Long.toString(random.nextLong(), 36) + " " + Long.toString(random.nextLong(), 36), x + 8, y + 48 + line * 20);
+			}
+		}
+
+		g.dispose();
+
+		return image;
+	}
+
+	private static BufferedImage createGradient(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+		int[] row = new int[width];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int r = x * 255 / width;
+				int g = y * 255 / height;
+				int b = (x + y) * 255 / (width + height);
+
+				row[x] = (r << 16) | (g << 8) | b;
+			}
+
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+
+		return image;
+	}
+
+	private static BufferedImage createSprites(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		Graphics2D g = image.createGraphics();
+
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+		Random random = new Random(1);
+
+		int size = Math.max(4, Math.min(width, height) / 8);
+
+		for (int i = 0; i < 200; i++) {
+			int x = random.nextInt(width) - size / 2;
+			int y = random.nextInt(height) - size / 2;
+
+			g.setColor(new Color(random.nextInt(0x1000000) | (64 + random.nextInt(192)) << 24, true));
+
+			if (random.nextBoolean()) {
+				g.fillOval(x, y, size, size);
+			} else {
+				g.fillRoundRect(x, y, size, size / 2, size / 4, size / 4);
+			}
+		}
+
+		g.dispose();
+
+		return image;
+	}
+
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+
+}
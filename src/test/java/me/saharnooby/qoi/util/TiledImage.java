@@ -0,0 +1,133 @@
+package me.saharnooby.qoi.util;
+
+import lombok.NonNull;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.Vector;
+
+/**
+ * A tiled {@link RenderedImage} backed by a {@link BufferedImage}, which
+ * fails when the whole image is requested with {@link #getData()}.
+ */
+public final class TiledImage implements RenderedImage {
+
+	private final BufferedImage image;
+	private final int tileWidth;
+	private final int tileHeight;
+
+	public TiledImage(@NonNull BufferedImage image, int tileWidth, int tileHeight) {
+		this.image = image;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+	}
+
+	@Override
+	public Vector<RenderedImage> getSources() {
+		return null;
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return Image.UndefinedProperty;
+	}
+
+	@Override
+	public String[] getPropertyNames() {
+		return null;
+	}
+
+	@Override
+	public ColorModel getColorModel() {
+		return this.image.getColorModel();
+	}
+
+	@Override
+	public SampleModel getSampleModel() {
+		return this.image.getSampleModel().createCompatibleSampleModel(this.tileWidth, this.tileHeight);
+	}
+
+	@Override
+	public int getWidth() {
+		return this.image.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return this.image.getHeight();
+	}
+
+	@Override
+	public int getMinX() {
+		return 0;
+	}
+
+	@Override
+	public int getMinY() {
+		return 0;
+	}
+
+	@Override
+	public int getNumXTiles() {
+		return (getWidth() + this.tileWidth - 1) / this.tileWidth;
+	}
+
+	@Override
+	public int getNumYTiles() {
+		return (getHeight() + this.tileHeight - 1) / this.tileHeight;
+	}
+
+	@Override
+	public int getMinTileX() {
+		return 0;
+	}
+
+	@Override
+	public int getMinTileY() {
+		return 0;
+	}
+
+	@Override
+	public int getTileWidth() {
+		return this.tileWidth;
+	}
+
+	@Override
+	public int getTileHeight() {
+		return this.tileHeight;
+	}
+
+	@Override
+	public int getTileGridXOffset() {
+		return 0;
+	}
+
+	@Override
+	public int getTileGridYOffset() {
+		return 0;
+	}
+
+	@Override
+	public Raster getTile(int tileX, int tileY) {
+		Rectangle bounds = new Rectangle(tileX * this.tileWidth, tileY * this.tileHeight, this.tileWidth, this.tileHeight)
+				.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+
+		return this.image.getData(bounds);
+	}
+
+	@Override
+	public Raster getData() {
+		throw new UnsupportedOperationException("Whole image must not be requested");
+	}
+
+	@Override
+	public Raster getData(Rectangle rect) {
+		throw new UnsupportedOperationException("Tiles must be requested instead");
+	}
+
+	@Override
+	public WritableRaster copyData(WritableRaster raster) {
+		throw new UnsupportedOperationException("Tiles must be requested instead");
+	}
+
+}
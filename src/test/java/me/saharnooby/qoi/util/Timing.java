@@ -0,0 +1,60 @@
+package me.saharnooby.qoi.util;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Timing loop shared by hand-run benchmarks and performance checks.
+ */
+public final class Timing {
+
+	@FunctionalInterface
+	public interface Task {
+
+		void run() throws IOException;
+
+	}
+
+	private Timing() {
+
+	}
+
+	/**
+	 * Runs the task repeatedly for the warm-up time, then for each round.
+	 * @return Average iteration time of each round in nanoseconds.
+	 */
+	public static double[] measure(long warmUpNanos, long roundNanos, int rounds, @NonNull Task task) throws IOException {
+		long warmUpStart = System.nanoTime();
+
+		while (System.nanoTime() - warmUpStart < warmUpNanos) {
+			task.run();
+		}
+
+		double[] result = new double[rounds];
+
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			long elapsed;
+			int count = 0;
+
+			do {
+				task.run();
+
+				count++;
+
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < roundNanos);
+
+			result[round] = (double) elapsed / count;
+		}
+
+		return result;
+	}
+
+	public static String formatMs(double nanos) {
+		return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000D);
+	}
+
+}